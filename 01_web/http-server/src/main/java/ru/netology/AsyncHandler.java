@@ -0,0 +1,8 @@
+package ru.netology;
+
+import java.util.concurrent.CompletionStage;
+
+@FunctionalInterface
+public interface AsyncHandler {
+    CompletionStage<Response> handle(Request request);
+}
@@ -0,0 +1,36 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+// registers AsyncHandler in the router, NIO mode completes it without holding the reactor
+class AsyncRoute implements Handler {
+    private final AsyncHandler handler;
+
+    AsyncRoute(AsyncHandler handler) {
+        this.handler = handler;
+    }
+
+    CompletionStage<Response> start(Request request) {
+        try {
+            return handler.handle(request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // thread per connection modes have nothing else to do with the thread, so just wait
+    @Override
+    public void handle(Request request, ResponseStream responseStream) throws IOException {
+        Response response;
+        try {
+            response = start(request).toCompletableFuture().join();
+        } catch (CompletionException e) {
+            e.printStackTrace();
+            response = Server.INTERNAL_SERVER_ERROR;
+        }
+        Server.writeResponse(response, request.isKeepAlive(), responseStream);
+    }
+}
@@ -0,0 +1,28 @@
+package ru.netology;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// direct buffers of the same size, reused instead of being allocated per response
+class BufferPool {
+    private final int bufferSize;
+    // array based queue doesn't allocate on offer/poll
+    private final BlockingQueue<ByteBuffer> buffers;
+
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    ByteBuffer acquire() {
+        final ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    void release(ByteBuffer buffer) {
+        buffer.clear();
+        // extra buffers are left to GC
+        buffers.offer(buffer);
+    }
+}
@@ -0,0 +1,74 @@
+package ru.netology;
+
+import java.util.Arrays;
+
+// parses Range header of bytes unit into inclusive start and end pairs
+class ByteRanges {
+    // more ranges are served as the whole file, many small ones are cheaper that way
+    private static final int MAX_RANGES = 16;
+    private static final String BYTES_UNIT = "bytes=";
+
+    // returns null when header is invalid and must be ignored, empty array when nothing is satisfiable
+    static long[] parse(String header, long length) {
+        if (!header.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+            return null;
+        }
+        final String[] specs = header.substring(BYTES_UNIT.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        final long[] ranges = new long[specs.length * 2];
+        int count = 0;
+        for (String spec : specs) {
+            final String trimmed = spec.trim();
+            final int dash = trimmed.indexOf('-');
+            if (dash == -1) {
+                return null;
+            }
+            final long start;
+            final long end;
+            if (dash == 0) {
+                // last N bytes
+                final long suffix = parseNumber(trimmed, 1, trimmed.length());
+                if (suffix == -1) {
+                    return null;
+                }
+                if (suffix == 0 || length == 0) {
+                    continue;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = parseNumber(trimmed, 0, dash);
+                final boolean open = dash == trimmed.length() - 1;
+                final long last = open ? Long.MAX_VALUE : parseNumber(trimmed, dash + 1, trimmed.length());
+                if (start == -1 || last == -1 || last < start) {
+                    return null;
+                }
+                if (start >= length) {
+                    continue;
+                }
+                end = Math.min(last, length - 1);
+            }
+            ranges[count++] = start;
+            ranges[count++] = end;
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    // digits only, -1 for anything else
+    private static long parseNumber(String value, int start, int end) {
+        if (start == end || end - start > 18) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+}
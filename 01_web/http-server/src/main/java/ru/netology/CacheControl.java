@@ -0,0 +1,34 @@
+package ru.netology;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cache-Control values of static files by extension, null means no header
+class CacheControl {
+    private final Map<String, String> rules = new ConcurrentHashMap<>();
+
+    CacheControl() {
+        // pages are revalidated with ETag every time, assets may be reused for a while
+        rules.put("html", "no-cache");
+        rules.put("css", "public, max-age=3600");
+        rules.put("js", "public, max-age=3600");
+        rules.put("svg", "public, max-age=86400");
+        rules.put("png", "public, max-age=86400");
+    }
+
+    // null value removes the rule
+    void set(String extension, String value) {
+        final String key = extension.toLowerCase(Locale.ROOT);
+        if (value == null) {
+            rules.remove(key);
+        } else {
+            rules.put(key, value);
+        }
+    }
+
+    String forPath(String path) {
+        final int dot = path.lastIndexOf('.');
+        return dot == -1 ? null : rules.get(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,149 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+
+class ChannelResponseStream extends ResponseStream {
+    private final SocketChannel channel;
+    private final ChannelOutput output;
+    private long written;
+
+    ChannelResponseStream(SocketChannel channel) {
+        this(channel, new ChannelOutput(channel));
+    }
+
+    private ChannelResponseStream(SocketChannel channel, ChannelOutput output) {
+        super(output, Server.BUFFER_POOL);
+        this.channel = channel;
+        this.output = output;
+    }
+
+    @Override
+    public void writeBuffers(ByteBuffer... buffers) throws IOException {
+        flush();
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            final long count = channel.write(buffers);
+            remaining -= count;
+            written += count;
+        }
+    }
+
+    @Override
+    public void transferFrom(FileChannel file, long position, long count) throws IOException {
+        try (file) {
+            flush();
+            long sent = 0;
+            while (sent < count) {
+                sent += file.transferTo(position + sent, count - sent, channel);
+            }
+            written += sent;
+        }
+    }
+
+    @Override
+    void writePooled(ByteBuffer buffer, BufferPool pool) throws IOException {
+        if (count > 0) {
+            flush();
+        }
+        output.hold(buffer, pool);
+    }
+
+    @Override
+    long takeWrittenBytes() {
+        final long total = written + output.written;
+        written = 0;
+        output.written = 0;
+        return total;
+    }
+
+    // headers are held until the body follows, so both are sent with one gathering write
+    private static class ChannelOutput extends OutputStream {
+        private final SocketChannel channel;
+        private final ByteBuffer[] gather = new ByteBuffer[2];
+        private ByteBuffer pending;
+        private BufferPool pendingPool;
+        // BufferedOutputStream always passes its own array, so the wrapper is reused
+        private byte[] wrapped;
+        private ByteBuffer wrapper;
+        private long written;
+
+        private ChannelOutput(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void hold(ByteBuffer buffer, BufferPool pool) throws IOException {
+            writePending();
+            pending = buffer;
+            pendingPool = pool;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (b != wrapped) {
+                wrapped = b;
+                wrapper = ByteBuffer.wrap(b);
+            }
+            wrapper.limit(off + len).position(off);
+            if (pending == null) {
+                while (wrapper.hasRemaining()) {
+                    written += channel.write(wrapper);
+                }
+                return;
+            }
+            gather[0] = pending;
+            gather[1] = wrapper;
+            long remaining = pending.remaining() + len;
+            while (remaining > 0) {
+                final long count = channel.write(gather);
+                remaining -= count;
+                written += count;
+            }
+            gather[0] = null;
+            releasePending();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writePending();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writePending();
+            } finally {
+                if (pending != null) {
+                    releasePending();
+                }
+            }
+        }
+
+        private void writePending() throws IOException {
+            if (pending == null) {
+                return;
+            }
+            while (pending.hasRemaining()) {
+                written += channel.write(pending);
+            }
+            releasePending();
+        }
+
+        private void releasePending() {
+            pendingPool.release(pending);
+            pending = null;
+            pendingPool = null;
+        }
+    }
+}
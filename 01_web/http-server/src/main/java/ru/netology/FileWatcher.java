@@ -0,0 +1,67 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// reports changed files of the directory as request paths, e.g. "/index.html"
+class FileWatcher implements Runnable {
+    private final Path directory;
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    FileWatcher(Path directory) {
+        this.directory = directory;
+    }
+
+    void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    void start() {
+        final Thread thread = new Thread(this, "file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try (final WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            while (true) {
+                final WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // some events are lost, everything may be changed
+                        notifyListeners(null);
+                        continue;
+                    }
+                    notifyListeners("/" + event.context());
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // null path means all files
+    private void notifyListeners(String path) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(path);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.netology;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+// body bounded by Content-Length
+class FixedLengthInputStream extends InputStream {
+    private final InputStream source;
+    private long remaining;
+
+    FixedLengthInputStream(InputStream source, long length) {
+        this.source = source;
+        this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        final int b = source.read();
+        if (b == -1) {
+            throw new EOFException("Body is shorter than Content-Length");
+        }
+        remaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        final int read = source.read(b, off, (int) Math.min(len, remaining));
+        if (read == -1) {
+            throw new EOFException("Body is shorter than Content-Length");
+        }
+        remaining -= read;
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(source.available(), remaining);
+    }
+}
@@ -0,0 +1,153 @@
+package ru.netology;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// streams response body as gzip in chunked transfer encoding, one reusable deflater per response stream
+class GzipEncoder {
+    // smaller bodies are not worth compressing
+    static final int MIN_LENGTH = 1024;
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "application/javascript", "application/json", "application/xml", "image/svg+xml");
+    // magic, deflate method, no flags, no mtime, no extra flags, unknown OS
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final ResponseStream out;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private final byte[] chunkSize = new byte[10];
+    private long remaining;
+
+    GzipEncoder(ResponseStream out) {
+        this.out = out;
+    }
+
+    // q=0 means the coding is not acceptable
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            final int parameters = coding.indexOf(';');
+            final String name = (parameters == -1 ? coding : coding.substring(0, parameters)).trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            if (parameters == -1) {
+                return true;
+            }
+            final String parameter = coding.substring(parameters + 1).trim();
+            if (!parameter.startsWith("q=")) {
+                return true;
+            }
+            try {
+                return Double.parseDouble(parameter.substring(2)) > 0;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    static boolean isCompressible(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        final int parameters = mimeType.indexOf(';');
+        final String type = parameters == -1 ? mimeType : mimeType.substring(0, parameters).trim();
+        return type.startsWith("text/") || COMPRESSIBLE_TYPES.contains(type);
+    }
+
+    // for static files compressed once, so the best level is used
+    static byte[] compress(byte[] content) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2);
+        try (final GZIPOutputStream gzip = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        }
+        return compressed.toByteArray();
+    }
+
+    void start(long length) throws IOException {
+        deflater.reset();
+        crc.reset();
+        remaining = length;
+        writeChunk(GZIP_HEADER, GZIP_HEADER.length);
+    }
+
+    // body must have exactly the declared length, bytes over it would follow the last chunk
+    // and be taken for the next response, so the write fails and the connection is closed
+    void write(byte[] b, int off, int len) throws IOException {
+        if (len > remaining) {
+            throw new IOException("Response body is longer than Content-Length");
+        }
+        crc.update(b, off, len);
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            deflate();
+        }
+        remaining -= len;
+        if (remaining > 0 || len == 0) {
+            return;
+        }
+
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate();
+        }
+        final byte[] trailer = new byte[8];
+        writeIntLE(trailer, 0, crc.getValue());
+        writeIntLE(trailer, 4, deflater.getBytesRead());
+        writeChunk(trailer, trailer.length);
+        out.writeRaw(LAST_CHUNK, 0, LAST_CHUNK.length);
+    }
+
+    // true once the whole declared body is written and the last chunk is sent
+    boolean isFinished() {
+        return remaining == 0;
+    }
+
+    void end() {
+        deflater.end();
+    }
+
+    private void deflate() throws IOException {
+        final int length = deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+        if (length > 0) {
+            writeChunk(buffer, length);
+        }
+    }
+
+    private void writeChunk(byte[] data, int length) throws IOException {
+        int position = chunkSize.length - CRLF.length;
+        chunkSize[position] = CRLF[0];
+        chunkSize[position + 1] = CRLF[1];
+        int value = length;
+        do {
+            chunkSize[--position] = HEX_DIGITS[value & 0xf];
+            value >>>= 4;
+        } while (value > 0);
+        out.writeRaw(chunkSize, position, chunkSize.length - position);
+        out.writeRaw(data, 0, length);
+        out.writeRaw(CRLF, 0, CRLF.length);
+    }
+
+    private static void writeIntLE(byte[] array, int offset, long value) {
+        for (int i = 0; i < 4; i++) {
+            array[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+}
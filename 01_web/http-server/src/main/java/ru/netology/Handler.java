@@ -1,9 +1,9 @@
 package ru.netology;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 
+// runs on a worker thread in both modes, so it may block; AsyncHandler is for waiting without a thread
 @FunctionalInterface
 public interface Handler {
-    void handle(Request request, BufferedOutputStream responseStream) throws IOException;
+    void handle(Request request, ResponseStream responseStream) throws IOException;
 }
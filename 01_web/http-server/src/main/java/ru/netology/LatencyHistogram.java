@@ -0,0 +1,104 @@
+package ru.netology;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// log-linear buckets like in HdrHistogram, values in microseconds with about 3% relative error
+// every thread records into its own stripe, so recording threads don't contend on the same counters
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    // about 19 hours, bigger values are counted as this one
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKETS = bucket(MAX_VALUE) + 1;
+    private static final int MAX_STRIPES = 64;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+    private final LongAdder totalMicros = new LongAdder();
+
+    LatencyHistogram() {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        final int count = Math.min(MAX_STRIPES, Integer.highestOneBit(processors * 2 - 1));
+        stripes = new AtomicLongArray[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+        stripeMask = count - 1;
+    }
+
+    @SuppressWarnings("deprecation")
+    void record(long micros) {
+        final long value = Math.max(0, Math.min(micros, MAX_VALUE));
+        // Thread.threadId() is Java 19+, getId() is the same for Java 11
+        stripes[(int) Thread.currentThread().getId() & stripeMask].incrementAndGet(bucket(value));
+        totalMicros.add(value);
+    }
+
+    long totalMicros() {
+        return totalMicros.sum();
+    }
+
+    // merged counts of all stripes, recording goes on while it is taken
+    Snapshot snapshot() {
+        final long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                final long count = stripe.get(i);
+                counts[i] += count;
+                total += count;
+            }
+        }
+        return new Snapshot(counts, total);
+    }
+
+    // values below SUB_BUCKETS have own buckets, then every power of two is split into HALF_SUB_BUCKETS
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // highest value counted in the bucket
+    private static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / HALF_SUB_BUCKETS - 1;
+        final long lowest = (long) (bucket - shift * HALF_SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    static class Snapshot {
+        private final long[] counts;
+        private final long total;
+
+        private Snapshot(long[] counts, long total) {
+            this.counts = counts;
+            this.total = total;
+        }
+
+        long count() {
+            return total;
+        }
+
+        long percentile(double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValue(i);
+                }
+            }
+            return MAX_VALUE;
+        }
+    }
+}
@@ -1,38 +1,52 @@
 package ru.netology;
 
-import java.io.BufferedOutputStream;
+import ru.netology.http.ExecutorStrategy;
+
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     public static void main(String[] args) {
-        final Server server = new Server();
+        final Server server = args.length > 0 && args[0].equals("virtual")
+                ? new Server(ExecutorStrategy.VIRTUAL_THREADS)
+                : new Server();
         server.addHandler("GET", "/messages", (request, responseStream) -> {
             final String text = "<h1>GET /messages</h1>\n" +
                     "Headers: " + request.getHeaders();
-            writeAnyData(text, responseStream);
+            writeAnyData(text, request.isKeepAlive(), responseStream);
+        });
+        server.addHandler("GET", "/messages/{id}", (request, responseStream) -> {
+            final String text = "<h1>GET /messages/" + request.getPathParam("id") + "</h1>\n" +
+                    "Headers: " + request.getHeaders();
+            writeAnyData(text, request.isKeepAlive(), responseStream);
         });
         server.addHandler("POST", "/messages", (request, responseStream) -> {
             final String text = "<h1>POST /messages</h1>\n" +
                     "Headers: " + request.getHeaders() + "\n" +
                     "Body: " + request.getBody();
-            writeAnyData(text, responseStream);
+            writeAnyData(text, request.isKeepAlive(), responseStream);
         });
-        server.start();
+        server.addAsyncHandler("GET", "/delayed", request -> CompletableFuture.supplyAsync(
+                () -> new Response(200, "OK", "text/html", "<h1>GET /delayed</h1>".getBytes(StandardCharsets.UTF_8)),
+                CompletableFuture.delayedExecutor(1, TimeUnit.SECONDS)));
+        if (args.length > 0 && args[0].equals("nio")) {
+            server.startNio();
+        } else {
+            server.start();
+        }
     }
 
-    private static void writeAnyData(final String content, final BufferedOutputStream out) throws IOException {
-        final String respBuilder = "HTTP/1.1 200 OK\r\n" +
-                "Content-Type: text/html\r\n" +
-                "Content-Length: " + content.length() + "\r\n" +
-                "Connection: close\r\n" +
-                "\r\n";
-
-        out.write(respBuilder.getBytes());
-        out.write(content.getBytes(StandardCharsets.UTF_8));
-        System.out.println(respBuilder);
-        System.out.println(content);
+    private static void writeAnyData(final String content, final boolean keepAlive,
+                                     final ResponseStream out) throws IOException {
+        final byte[] contentBytes = content.getBytes(StandardCharsets.UTF_8);
+        out.writer()
+                .status(200, "OK")
+                .contentType("text/html")
+                .contentLength(contentBytes.length)
+                .connection(keepAlive)
+                .endHeaders();
+        out.write(contentBytes);
     }
 }
-
-
@@ -0,0 +1,122 @@
+package ru.netology;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// request counters and latencies by route, rendered in Prometheus text format
+public class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double MICROS_PER_SECOND = 1_000_000.0;
+
+    // sorted, so the output is stable between scrapes
+    private final Map<String, RouteStats> routes = new ConcurrentSkipListMap<>();
+    private final RouteStats staticFiles = route("static");
+    private final RouteStats notFound = route("not_found");
+    private final LongAdder openConnections = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+
+    RouteStats route(String name) {
+        return routes.computeIfAbsent(name, RouteStats::new);
+    }
+
+    RouteStats staticFiles() {
+        return staticFiles;
+    }
+
+    RouteStats notFound() {
+        return notFound;
+    }
+
+    void connectionOpened() {
+        openConnections.increment();
+    }
+
+    void connectionClosed() {
+        openConnections.decrement();
+    }
+
+    void connectionRejected() {
+        rejectedConnections.increment();
+    }
+
+    public String render() {
+        final StringBuilder out = new StringBuilder();
+        out.append("# HELP http_connections_open Connections currently served.\n");
+        out.append("# TYPE http_connections_open gauge\n");
+        out.append("http_connections_open ").append(openConnections.sum()).append('\n');
+        out.append("# HELP http_connections_rejected_total Connections refused with 503.\n");
+        out.append("# TYPE http_connections_rejected_total counter\n");
+        out.append("http_connections_rejected_total ").append(rejectedConnections.sum()).append('\n');
+
+        out.append("# HELP http_requests_total Requests served.\n");
+        out.append("# TYPE http_requests_total counter\n");
+        for (RouteStats stats : routes.values()) {
+            stats.label(out.append("http_requests_total")).append(' ').append(stats.requests.sum()).append('\n');
+        }
+        out.append("# HELP http_request_bytes_total Bytes of request heads and bodies.\n");
+        out.append("# TYPE http_request_bytes_total counter\n");
+        for (RouteStats stats : routes.values()) {
+            stats.label(out.append("http_request_bytes_total")).append(' ').append(stats.bytesIn.sum()).append('\n');
+        }
+        out.append("# HELP http_response_bytes_total Bytes written to sockets.\n");
+        out.append("# TYPE http_response_bytes_total counter\n");
+        for (RouteStats stats : routes.values()) {
+            stats.label(out.append("http_response_bytes_total")).append(' ').append(stats.bytesOut.sum()).append('\n');
+        }
+
+        out.append("# HELP http_request_duration_seconds Time from parsed request head to written response.\n");
+        out.append("# TYPE http_request_duration_seconds summary\n");
+        for (RouteStats stats : routes.values()) {
+            final LatencyHistogram.Snapshot snapshot = stats.latency.snapshot();
+            for (double quantile : QUANTILES) {
+                out.append("http_request_duration_seconds{route=\"");
+                escape(out, stats.name).append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(snapshot.percentile(quantile) / MICROS_PER_SECOND).append('\n');
+            }
+            stats.label(out.append("http_request_duration_seconds_sum")).append(' ')
+                    .append(stats.latency.totalMicros() / MICROS_PER_SECOND).append('\n');
+            stats.label(out.append("http_request_duration_seconds_count")).append(' ')
+                    .append(snapshot.count()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static StringBuilder escape(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+        return out;
+    }
+
+    static class RouteStats {
+        private final String name;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private RouteStats(String name) {
+            this.name = name;
+        }
+
+        void record(long startedNanos, long requestBytes, long responseBytes) {
+            requests.increment();
+            bytesIn.add(requestBytes);
+            bytesOut.add(responseBytes);
+            latency.record((System.nanoTime() - startedNanos) / 1_000);
+        }
+
+        private StringBuilder label(StringBuilder out) {
+            out.append("{route=\"");
+            return escape(out, name).append("\"}");
+        }
+    }
+}
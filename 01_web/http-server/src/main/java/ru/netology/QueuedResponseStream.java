@@ -0,0 +1,196 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+// collects response for non-blocking write by Reactor, reused for all responses of a connection
+class QueuedResponseStream extends ResponseStream {
+    private static final int MAX_GATHERED_BUFFERS = 16;
+
+    private final BufferPool pool;
+    private final Queue<Segment> segments = new ArrayDeque<>();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHERED_BUFFERS];
+    // written bytes are copied straight into pooled direct buffers
+    private ByteBuffer current;
+    private long written;
+
+    QueuedResponseStream() {
+        this(Server.BUFFER_POOL);
+    }
+
+    private QueuedResponseStream(BufferPool pool) {
+        super(OutputStream.nullOutputStream(), pool);
+        this.pool = pool;
+    }
+
+    @Override
+    void writeRaw(byte[] b, int off, int len) {
+        while (len > 0) {
+            if (current == null || !current.hasRemaining()) {
+                nextBuffer();
+            }
+            final int length = Math.min(len, current.remaining());
+            current.put(b, off, length);
+            off += length;
+            len -= length;
+        }
+    }
+
+    @Override
+    public void flush() {
+        // everything is already queued
+    }
+
+    @Override
+    public void writeBuffers(ByteBuffer... buffers) {
+        enqueueBytes();
+        for (ByteBuffer buffer : buffers) {
+            segments.add(new BufferSegment(buffer, null));
+        }
+    }
+
+    @Override
+    public void transferFrom(FileChannel file, long position, long count) {
+        enqueueBytes();
+        segments.add(new FileSegment(file, position, count));
+    }
+
+    @Override
+    void writePooled(ByteBuffer buffer, BufferPool pool) {
+        enqueueBytes();
+        segments.add(new BufferSegment(buffer, pool));
+    }
+
+    void enqueueBytes() {
+        if (current != null) {
+            current.flip();
+            segments.add(new BufferSegment(current, pool));
+            current = null;
+        }
+    }
+
+    // returns true when everything is written
+    boolean writeTo(SocketChannel channel) throws IOException {
+        Segment segment;
+        while ((segment = segments.peek()) != null) {
+            if (segment instanceof FileSegment) {
+                final FileSegment file = (FileSegment) segment;
+                written += file.writeTo(channel);
+                if (!file.isDone()) {
+                    return false;
+                }
+                segments.poll();
+                continue;
+            }
+            // headers and body buffers in a row go with one gathering write
+            int count = 0;
+            for (Segment next : segments) {
+                if (!(next instanceof BufferSegment) || count == gather.length) {
+                    break;
+                }
+                gather[count++] = ((BufferSegment) next).buffer;
+            }
+            written += channel.write(gather, 0, count);
+            for (int i = 0; i < count; i++) {
+                gather[i] = null;
+            }
+            while ((segment = segments.peek()) instanceof BufferSegment
+                    && !((BufferSegment) segment).buffer.hasRemaining()) {
+                segments.poll().discard();
+            }
+            if (segment instanceof BufferSegment) {
+                // socket send buffer is full
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    long takeWrittenBytes() {
+        final long total = written;
+        written = 0;
+        return total;
+    }
+
+    // drops unsent response, pooled buffers are returned and files are closed
+    void discard() {
+        endEncoding();
+        if (current != null) {
+            pool.release(current);
+            current = null;
+        }
+        Segment segment;
+        while ((segment = segments.poll()) != null) {
+            segment.discard();
+        }
+    }
+
+    private void nextBuffer() {
+        enqueueBytes();
+        current = pool.acquire();
+    }
+
+    private interface Segment {
+        void discard();
+    }
+
+    private static class BufferSegment implements Segment {
+        private final ByteBuffer buffer;
+        // null for buffers not owned by the stream
+        private final BufferPool pool;
+
+        private BufferSegment(ByteBuffer buffer, BufferPool pool) {
+            this.buffer = buffer;
+            this.pool = pool;
+        }
+
+        @Override
+        public void discard() {
+            if (pool != null) {
+                pool.release(buffer);
+            }
+        }
+    }
+
+    private static class FileSegment implements Segment {
+        private final FileChannel file;
+        private long position;
+        private final long end;
+
+        private FileSegment(FileChannel file, long position, long count) {
+            this.file = file;
+            this.position = position;
+            this.end = position + count;
+        }
+
+        // returns count of sent bytes
+        long writeTo(SocketChannel channel) throws IOException {
+            // sendfile, bytes never reach java heap
+            final long sent = file.transferTo(position, end - position, channel);
+            position += sent;
+            if (position == end) {
+                file.close();
+            }
+            return sent;
+        }
+
+        boolean isDone() {
+            return position == end;
+        }
+
+        @Override
+        public void discard() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
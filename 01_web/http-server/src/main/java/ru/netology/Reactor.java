@@ -0,0 +1,366 @@
+package ru.netology;
+
+import ru.netology.http.ChunkedScanner;
+import ru.netology.http.RequestParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+class Reactor implements Runnable {
+    private static final long IDLE_CHECK_INTERVAL_MILLIS = 1_000;
+
+    private final Server server;
+    // runs handlers and cache misses, which may block, so the reactor only does in-memory work
+    private final ExecutorService workers;
+    private final Selector selector;
+    private final Queue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>();
+    // async handlers and workers complete on other threads, responses are written by the reactor itself
+    private final Queue<Runnable> completions = new ConcurrentLinkedQueue<>();
+
+    Reactor(Server server, ExecutorService workers) throws IOException {
+        this.server = server;
+        this.workers = workers;
+        this.selector = Selector.open();
+    }
+
+    void register(SocketChannel channel) {
+        newChannels.add(channel);
+        selector.wakeup();
+    }
+
+    @SuppressWarnings("InfiniteLoopStatement")
+    @Override
+    public void run() {
+        long lastIdleCheck = System.currentTimeMillis();
+        while (true) {
+            try {
+                selector.select(IDLE_CHECK_INTERVAL_MILLIS);
+                registerNewChannels();
+                runCompletions();
+
+                final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    final SelectionKey key = iterator.next();
+                    iterator.remove();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            read(key);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(key);
+                        }
+                    } catch (Exception e) {
+                        close(key);
+                    }
+                }
+
+                final long now = System.currentTimeMillis();
+                if (now - lastIdleCheck >= IDLE_CHECK_INTERVAL_MILLIS) {
+                    closeIdle(now);
+                    lastIdleCheck = now;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void closeIdle(long now) {
+        for (SelectionKey key : selector.keys()) {
+            final Connection connection = (Connection) key.attachment();
+            // connections with a response in progress are never idle
+            if (key.isValid() && !connection.writing && !connection.awaiting
+                    && now - connection.lastActive > Server.IDLE_TIMEOUT_MILLIS) {
+                close(key);
+            }
+        }
+    }
+
+    private void runCompletions() {
+        Runnable completion;
+        while ((completion = completions.poll()) != null) {
+            completion.run();
+        }
+    }
+
+    private void registerNewChannels() {
+        SocketChannel channel;
+        while ((channel = newChannels.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new Connection());
+            } catch (IOException e) {
+                e.printStackTrace();
+                server.connectionClosed();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // already broken
+                }
+            }
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        final SocketChannel channel = (SocketChannel) key.channel();
+        final Connection connection = (Connection) key.attachment();
+
+        if (!connection.in.ensureFree()) {
+            close(key);
+            return;
+        }
+        if (channel.read(connection.in.buffer()) == -1) {
+            close(key);
+            return;
+        }
+        connection.lastActive = System.currentTimeMillis();
+        processBuffered(key);
+    }
+
+    private void processBuffered(SelectionKey key) throws IOException {
+        final Connection connection = (Connection) key.attachment();
+        final RequestParser.Result result = connection.parser.parse(connection.in.buffer());
+        if (result == RequestParser.Result.INVALID) {
+            close(key);
+            return;
+        }
+        if (result == RequestParser.Result.INCOMPLETE) {
+            // wait for more data
+            return;
+        }
+        // reactor thread can't block, so the whole body is buffered before handling
+        final long requestLength = bodyEnd(connection);
+        if (requestLength == -1) {
+            rejectTooLarge(key);
+            return;
+        }
+        if (requestLength == 0) {
+            // wait for body
+            return;
+        }
+
+        connection.served++;
+        connection.started = System.nanoTime();
+        connection.requestBytes = requestLength;
+        final RequestBuffer.BodySource source = connection.in.bodySource(connection.parser.headEnd(), null);
+        final Request request = new Request(connection.in.buffer().array(), connection.parser, connection.routeMatch,
+                Server.bodyStream(connection.parser, source),
+                connection.parser.isKeepAlive() && connection.served < Server.MAX_REQUESTS_PER_CONNECTION);
+
+        final Handler handler = server.route(request);
+        if (handler instanceof AsyncRoute) {
+            // nothing is read from the connection until the response is ready, this keeps pipelined order
+            connection.awaiting = true;
+            connection.stats = request.routeStats();
+            key.interestOps(0);
+            ((AsyncRoute) handler).start(request).whenComplete((response, error) -> {
+                completions.add(() -> completeAsync(key, request, response, error));
+                selector.wakeup();
+            });
+            return;
+        }
+
+        if (!server.isInline(request, handler)) {
+            // same as for async handlers, the connection is left alone until the worker is done
+            connection.awaiting = true;
+            key.interestOps(0);
+            try {
+                workers.execute(() -> processOnWorker(key, request, handler));
+            } catch (RejectedExecutionException e) {
+                connection.awaiting = false;
+                reject(key, request, handler);
+            }
+            return;
+        }
+
+        final QueuedResponseStream out = connection.out;
+        try {
+            connection.stats = server.process(request, handler, out);
+            out.enqueueBytes();
+        } catch (IOException e) {
+            out.discard();
+            throw e;
+        }
+        respond(key, request, request.isKeepAlive());
+    }
+
+    // worker thread, the response is only queued here and written by the reactor
+    private void processOnWorker(SelectionKey key, Request request, Handler handler) {
+        final Connection connection = (Connection) key.attachment();
+        final QueuedResponseStream out = connection.out;
+        Metrics.RouteStats stats = null;
+        try {
+            stats = server.process(request, handler, out);
+            out.enqueueBytes();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        final Metrics.RouteStats processedStats = stats;
+        completions.add(() -> completeOnReactor(key, request, processedStats));
+        selector.wakeup();
+    }
+
+    // stats are null when the worker failed
+    private void completeOnReactor(SelectionKey key, Request request, Metrics.RouteStats stats) {
+        final Connection connection = (Connection) key.attachment();
+        connection.awaiting = false;
+        if (stats == null || !key.isValid()) {
+            close(key);
+            return;
+        }
+        connection.stats = stats;
+        try {
+            respond(key, request, request.isKeepAlive());
+        } catch (Exception e) {
+            close(key);
+        }
+    }
+
+    // all workers are busy and their queue is full, the client should retry later
+    private void reject(SelectionKey key, Request request, Handler handler) throws IOException {
+        respondAndClose(key, request, handler, 503, ResponseWriter.serviceUnavailable());
+    }
+
+    // body doesn't fit into the buffer, the client gets 413 before the connection is closed
+    private void rejectTooLarge(SelectionKey key) throws IOException {
+        final Connection connection = (Connection) key.attachment();
+        connection.started = System.nanoTime();
+        // what is read so far, the rest of the body is never read
+        connection.requestBytes = connection.in.buffer().position();
+        final Request request = new Request(connection.in.buffer().array(), connection.parser, connection.routeMatch,
+                InputStream.nullInputStream(), false);
+        respondAndClose(key, request, server.route(request), 413, ResponseWriter.payloadTooLarge());
+    }
+
+    private void respondAndClose(SelectionKey key, Request request, Handler handler, int status,
+                                 ByteBuffer response) throws IOException {
+        final Connection connection = (Connection) key.attachment();
+        connection.stats = handler != null ? request.routeStats() : server.getMetrics().staticFiles();
+        connection.out.recordStatus(status);
+        connection.out.writeBuffers(response);
+        respond(key, request, false);
+    }
+
+    private void completeAsync(SelectionKey key, Request request, Response response, Throwable error) {
+        final Connection connection = (Connection) key.attachment();
+        connection.awaiting = false;
+        if (!key.isValid()) {
+            // closed while waiting
+            return;
+        }
+        if (error != null) {
+            error.printStackTrace();
+            response = Server.INTERNAL_SERVER_ERROR;
+        }
+
+        final QueuedResponseStream out = connection.out;
+        try {
+            out.negotiate(request);
+            Server.writeResponse(response, request.isKeepAlive(), out);
+            out.endBody();
+            out.enqueueBytes();
+            respond(key, request, request.isKeepAlive());
+        } catch (Exception e) {
+            out.discard();
+            close(key);
+        }
+    }
+
+    private void respond(SelectionKey key, Request request, boolean keepAlive) throws IOException {
+        final Connection connection = (Connection) key.attachment();
+        // nothing is read while writing, so the request stays valid in the buffer until the response is sent
+        connection.request = request;
+        connection.writing = true;
+        connection.keepAlive = keepAlive;
+        key.interestOps(SelectionKey.OP_WRITE);
+        write(key);
+    }
+
+    // returns end of body in the buffer, 0 if body is not fully read yet or -1 if it is too big
+    private static long bodyEnd(Connection connection) throws IOException {
+        final RequestBuffer in = connection.in;
+        final RequestParser parser = connection.parser;
+        if (parser.isChunked()) {
+            final int end = connection.chunked.findEnd(in.buffer().array(), parser.headEnd(), in.buffer().position());
+            if (end != -1) {
+                return end;
+            }
+            return in.buffer().hasRemaining() || in.ensureFree() ? 0 : -1;
+        }
+
+        final long end = parser.headEnd() + parser.contentLength();
+        if (!in.ensureCapacity(end)) {
+            return -1;
+        }
+        return in.buffer().position() >= end ? end : 0;
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        final SocketChannel channel = (SocketChannel) key.channel();
+        final Connection connection = (Connection) key.attachment();
+
+        if (!connection.out.writeTo(channel)) {
+            return;
+        }
+        connection.writing = false;
+        server.complete(connection.request, connection.stats, connection.out, connection.started,
+                connection.requestBytes);
+        connection.request = null;
+        // keep bytes of the next pipelined request, if any
+        connection.in.consume((int) connection.requestBytes);
+        connection.parser.reset();
+        connection.chunked.reset();
+        connection.lastActive = System.currentTimeMillis();
+        if (!connection.keepAlive) {
+            close(key);
+            return;
+        }
+        // responses are sent in request order, so the next pipelined request is handled only now
+        key.interestOps(SelectionKey.OP_READ);
+        processBuffered(key);
+    }
+
+    private void close(SelectionKey key) {
+        final Connection connection = (Connection) key.attachment();
+        if (connection.closed) {
+            return;
+        }
+        connection.closed = true;
+        server.connectionClosed();
+        connection.out.discard();
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static class Connection {
+        private final RequestBuffer in = new RequestBuffer(Server.READ_BUFFER_SIZE, Server.MAX_REQUEST_SIZE);
+        private final RequestParser parser = new RequestParser();
+        private final ChunkedScanner chunked = new ChunkedScanner();
+        private final RouteMatch routeMatch = new RouteMatch();
+        private final QueuedResponseStream out = new QueuedResponseStream();
+        private boolean writing;
+        private boolean keepAlive;
+        private boolean awaiting;
+        private boolean closed;
+        private int served;
+        // of the request being handled or written
+        private long started;
+        private long requestBytes;
+        private Request request;
+        private Metrics.RouteStats stats;
+        private long lastActive = System.currentTimeMillis();
+    }
+}
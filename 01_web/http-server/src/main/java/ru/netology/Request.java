@@ -1,31 +1,101 @@
 package ru.netology;
 
+import ru.netology.http.AccessLog;
+import ru.netology.http.RequestParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// view over the connection buffer, valid only while the request is being handled
 public class Request {
-    private final String method;
-    private final String path;
-    private final String headers;
-    private final String body;
+    private final byte[] buffer;
+    private final RequestParser parser;
+    private final RouteMatch routeMatch;
+    private final InputStream bodyStream;
+    private final boolean keepAlive;
+    private String path;
+    private String headers;
+    private String body;
 
-    public Request(String method, String path, String headers, String body) {
-        this.method = method;
-        this.path = path;
-        this.headers = headers;
-        this.body = body;
+    Request(byte[] buffer, RequestParser parser, RouteMatch routeMatch, InputStream bodyStream, boolean keepAlive) {
+        this.buffer = buffer;
+        this.parser = parser;
+        this.routeMatch = routeMatch;
+        this.bodyStream = bodyStream;
+        this.keepAlive = keepAlive;
     }
 
     public String getMethod() {
-        return method;
+        return parser.method();
     }
 
     public String getPath() {
+        if (path == null) {
+            path = new String(buffer, parser.targetStart(), parser.pathEnd() - parser.targetStart(),
+                    StandardCharsets.ISO_8859_1);
+        }
         return path;
     }
 
+    // value of {name} segment of the matched route pattern
+    public String getPathParam(String name) {
+        return routeMatch.param(name);
+    }
+
     public String getHeaders() {
+        if (headers == null) {
+            headers = new String(buffer, parser.headersStart(), parser.headersEnd() - parser.headersStart(),
+                    StandardCharsets.ISO_8859_1);
+        }
         return headers;
     }
 
-    public String getBody() {
+    public String getHeader(String name) {
+        return parser.header(buffer, name);
+    }
+
+    // body bounded by Content-Length or decoded from chunks, may be read while it is still being received
+    public InputStream getBodyStream() {
+        return bodyStream;
+    }
+
+    public ReadableByteChannel getBodyChannel() {
+        return Channels.newChannel(bodyStream);
+    }
+
+    // reads the rest of the body stream into memory
+    public String getBody() throws IOException {
+        if (body == null) {
+            body = new String(bodyStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
         return body;
     }
-}
\ No newline at end of file
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    boolean isHttp11() {
+        return parser.isHttp11();
+    }
+
+    void logTo(AccessLog accessLog, int status, long responseBytes, long startedNanos) {
+        accessLog.log(parser.method(), buffer, parser.targetStart(), parser.targetEnd(), status, responseBytes,
+                startedNanos);
+    }
+
+    // stats of the matched route, valid after route()
+    Metrics.RouteStats routeStats() {
+        return routeMatch.stats();
+    }
+
+    // returns null when no route matches
+    Handler route(Router router) {
+        return router.route(parser.method(), buffer, parser.targetStart(), parser.pathEnd(), routeMatch)
+                ? routeMatch.handler()
+                : null;
+    }
+}
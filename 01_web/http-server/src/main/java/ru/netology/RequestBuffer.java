@@ -0,0 +1,127 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+// growable read buffer of a connection, handled requests are removed from its start
+class RequestBuffer {
+    private final int maxCapacity;
+    private ByteBuffer buffer;
+
+    RequestBuffer(int initialCapacity, int maxCapacity) {
+        this.buffer = ByteBuffer.allocate(initialCapacity);
+        this.maxCapacity = maxCapacity;
+    }
+
+    // in write mode, position is the end of read data
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    // returns false when buffer is full and can't grow anymore
+    boolean ensureFree() {
+        return buffer.hasRemaining() || ensureCapacity(buffer.capacity() + 1);
+    }
+
+    boolean ensureCapacity(long capacity) {
+        if (capacity <= buffer.capacity()) {
+            return true;
+        }
+        if (capacity > maxCapacity) {
+            return false;
+        }
+        final ByteBuffer bigger = ByteBuffer.allocate((int) Math.min(Math.max(capacity, buffer.capacity() * 2L), maxCapacity));
+        buffer.flip();
+        bigger.put(buffer);
+        buffer = bigger;
+        return true;
+    }
+
+    // blocking read, returns false on end of stream
+    boolean readFrom(InputStream in) throws IOException {
+        final int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+        if (read == -1) {
+            return false;
+        }
+        buffer.position(buffer.position() + read);
+        return true;
+    }
+
+    void consume(int length) {
+        buffer.flip().position(length);
+        buffer.compact();
+    }
+
+    // in may be null when the whole body is already in the buffer
+    BodySource bodySource(int bodyStart, InputStream in) {
+        return new BodySource(bodyStart, in);
+    }
+
+    // reads body from the buffer and refills it from the socket when exhausted
+    // consumed body bytes are dropped on refill, request line and headers stay in place
+    class BodySource extends InputStream {
+        private final int bodyStart;
+        private final InputStream in;
+        private int readPosition;
+        // body bytes read and then dropped from the buffer on refills
+        private long dropped;
+
+        private BodySource(int bodyStart, InputStream in) {
+            this.bodyStart = bodyStart;
+            this.in = in;
+            this.readPosition = bodyStart;
+        }
+
+        // end of read body bytes in the buffer
+        int position() {
+            return readPosition;
+        }
+
+        // head and body bytes read so far, including those already dropped from the buffer
+        long requestBytes() {
+            return dropped + readPosition;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer.array()[readPosition++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            final int count = Math.min(len, buffer.position() - readPosition);
+            System.arraycopy(buffer.array(), readPosition, b, off, count);
+            readPosition += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.position() - readPosition;
+        }
+
+        private boolean fill() throws IOException {
+            if (readPosition < buffer.position()) {
+                return true;
+            }
+            if (in == null) {
+                return false;
+            }
+            // everything after readPosition is already read, so only head is kept
+            dropped += readPosition - bodyStart;
+            buffer.position(bodyStart);
+            readPosition = bodyStart;
+            return ensureFree() && readFrom(in);
+        }
+    }
+}
@@ -1,16 +1,16 @@
 package ru.netology;
 
-public class ResponseData {
+public class Response {
     private final int code;
     private final String description;
     private final String contentType;
-    private final long contentLength;
+    private final byte[] body;
 
-    public ResponseData(int code, String description, String contentType, long contentLength) {
+    public Response(int code, String description, String contentType, byte[] body) {
         this.code = code;
         this.description = description;
         this.contentType = contentType;
-        this.contentLength = contentLength;
+        this.body = body;
     }
 
     public int getCode() {
@@ -25,7 +25,7 @@ public class ResponseData {
         return contentType;
     }
 
-    public long getContentLength() {
-        return contentLength;
+    public byte[] getBody() {
+        return body;
     }
 }
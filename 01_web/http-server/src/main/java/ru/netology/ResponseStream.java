@@ -0,0 +1,113 @@
+package ru.netology;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public abstract class ResponseStream extends BufferedOutputStream {
+    private final ResponseWriter writer;
+    private boolean compressionAllowed;
+    // created on first compressed response, deflater holds native memory
+    private GzipEncoder encoder;
+    private boolean encoding;
+    private int status;
+
+    protected ResponseStream(OutputStream out, BufferPool pool) {
+        super(out);
+        this.writer = new ResponseWriter(this, pool);
+    }
+
+    // status line and headers writer, reused for every response of the stream
+    public ResponseWriter writer() {
+        return writer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    // body of a compressed response goes through the encoder
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (encoding) {
+            encoder.write(b, off, len);
+        } else {
+            writeRaw(b, off, len);
+        }
+    }
+
+    // writes buffers right after already written bytes with a single gathering write when possible
+    public abstract void writeBuffers(ByteBuffer... buffers) throws IOException;
+
+    // sends file region right after already written bytes, file is closed when done
+    public abstract void transferFrom(FileChannel file, long position, long count) throws IOException;
+
+    // like writeBuffers, but buffer is returned to the pool once it is written
+    abstract void writePooled(ByteBuffer buffer, BufferPool pool) throws IOException;
+
+    // status code of the last response, for the access log
+    int status() {
+        return status;
+    }
+
+    void recordStatus(int status) {
+        this.status = status;
+    }
+
+    // bytes written to the socket since the last call
+    abstract long takeWrittenBytes();
+
+    void writeRaw(byte[] b, int off, int len) throws IOException {
+        super.write(b, off, len);
+    }
+
+    // set for every request, chunked encoding needs HTTP/1.1, HEAD has no body to compress
+    void negotiate(Request request) {
+        compressionAllowed = request.isHttp11() && !request.getMethod().equals("HEAD")
+                && GzipEncoder.acceptsGzip(request.getHeader("Accept-Encoding"));
+    }
+
+    boolean isCompressionAllowed() {
+        return compressionAllowed;
+    }
+
+    // next length bytes of body are compressed
+    void startGzip(long length) throws IOException {
+        if (encoder == null) {
+            encoder = new GzipEncoder(this);
+        }
+        encoder.start(length);
+        encoding = true;
+    }
+
+    // called when the handler is done with the response, a compressed body shorter than declared
+    // can't be finished, the client would wait for the rest, so the connection has to be closed
+    void endBody() throws IOException {
+        if (encoding) {
+            encoding = false;
+            if (!encoder.isFinished()) {
+                throw new IOException("Response body is shorter than Content-Length");
+            }
+        }
+    }
+
+    void endEncoding() {
+        encoding = false;
+        if (encoder != null) {
+            encoder.end();
+            encoder = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            endEncoding();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// writes status line and headers into pooled direct buffers, common parts are pre-encoded
+public class ResponseWriter {
+    private static final byte[] HTTP_1_1 = ascii("HTTP/1.1 ");
+    private static final byte[] STATUS_200 = ascii("HTTP/1.1 200 OK\r\n");
+    private static final byte[] STATUS_206 = ascii("HTTP/1.1 206 Partial Content\r\n");
+    private static final byte[] STATUS_304 = ascii("HTTP/1.1 304 Not Modified\r\n");
+    private static final byte[] STATUS_404 = ascii("HTTP/1.1 404 Not Found\r\n");
+    private static final byte[] STATUS_500 = ascii("HTTP/1.1 500 Internal Server Error\r\n");
+    private static final byte[] CONTENT_TYPE = ascii("Content-Type: ");
+    private static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+    private static final byte[] GZIP_CHUNKED = ascii("Content-Encoding: gzip\r\nTransfer-Encoding: chunked\r\n");
+    private static final byte[] VARY_ACCEPT_ENCODING = ascii("Vary: Accept-Encoding\r\n");
+    private static final byte[] KEEP_ALIVE = ascii("Connection: keep-alive\r\n");
+    private static final byte[] CLOSE = ascii("Connection: close\r\n");
+    private static final byte[] HEADER_SEPARATOR = ascii(": ");
+    private static final byte[] CRLF = ascii("\r\n");
+    private static final ByteBuffer KEEP_ALIVE_BUFFER = directBuffer(KEEP_ALIVE);
+    private static final ByteBuffer CLOSE_BUFFER = directBuffer(CLOSE);
+    private static final ByteBuffer SERVICE_UNAVAILABLE = directBuffer(ascii("HTTP/1.1 503 Service Unavailable\r\n"
+            + "Retry-After: " + Server.RETRY_AFTER_SECONDS + "\r\n"
+            + "Content-Length: 0\r\n"
+            + "Connection: close\r\n\r\n"));
+    private static final ByteBuffer PAYLOAD_TOO_LARGE = directBuffer(ascii("HTTP/1.1 413 Payload Too Large\r\n"
+            + "Content-Length: 0\r\n"
+            + "Connection: close\r\n\r\n"));
+
+    private final ResponseStream out;
+    private final BufferPool pool;
+    private final byte[] digits = new byte[20];
+    private ByteBuffer buffer;
+    // Content-Length is written last, body may be compressed instead
+    private long contentLength;
+    private boolean compressible;
+
+    ResponseWriter(ResponseStream out, BufferPool pool) {
+        this.out = out;
+        this.pool = pool;
+    }
+
+    // pre-encoded Connection header for responses assembled from ready buffers
+    static ByteBuffer connectionHeader(boolean keepAlive) {
+        return (keepAlive ? KEEP_ALIVE_BUFFER : CLOSE_BUFFER).duplicate();
+    }
+
+    // complete response for connections refused by admission control
+    static ByteBuffer serviceUnavailable() {
+        return SERVICE_UNAVAILABLE.duplicate();
+    }
+
+    // complete response for request bodies too big to buffer, the connection is closed after it
+    static ByteBuffer payloadTooLarge() {
+        return PAYLOAD_TOO_LARGE.duplicate();
+    }
+
+    public ResponseWriter status(int code, String description) throws IOException {
+        if (buffer == null) {
+            buffer = pool.acquire();
+        }
+        contentLength = -1;
+        compressible = false;
+        out.recordStatus(code);
+        final byte[] statusLine = statusLine(code);
+        if (statusLine != null) {
+            put(statusLine);
+            return this;
+        }
+        put(HTTP_1_1);
+        putNumber(code);
+        putAscii(" ");
+        putAscii(description);
+        put(CRLF);
+        return this;
+    }
+
+    public ResponseWriter header(String name, String value) throws IOException {
+        putAscii(name);
+        put(HEADER_SEPARATOR);
+        putAscii(value);
+        put(CRLF);
+        return this;
+    }
+
+    // null content type is skipped
+    public ResponseWriter contentType(String contentType) throws IOException {
+        if (contentType != null) {
+            put(CONTENT_TYPE);
+            putAscii(contentType);
+            put(CRLF);
+            compressible = GzipEncoder.isCompressible(contentType);
+        }
+        return this;
+    }
+
+    public ResponseWriter contentLength(long length) {
+        contentLength = length;
+        return this;
+    }
+
+    // body is sent as is, e.g. with transferFrom which bypasses compression
+    ResponseWriter uncompressed() {
+        compressible = false;
+        return this;
+    }
+
+    public ResponseWriter connection(boolean keepAlive) throws IOException {
+        put(keepAlive ? KEEP_ALIVE : CLOSE);
+        return this;
+    }
+
+    // ends header block, body may be written to the response stream after it
+    public void endHeaders() throws IOException {
+        final boolean varies = compressible && contentLength >= GzipEncoder.MIN_LENGTH;
+        final boolean gzip = varies && out.isCompressionAllowed();
+        if (varies) {
+            put(VARY_ACCEPT_ENCODING);
+        }
+        if (gzip) {
+            put(GZIP_CHUNKED);
+        } else if (contentLength >= 0) {
+            put(CONTENT_LENGTH);
+            putNumber(contentLength);
+            put(CRLF);
+        }
+        put(CRLF);
+        spill();
+        if (gzip) {
+            out.startGzip(contentLength);
+        }
+    }
+
+    private static byte[] statusLine(int code) {
+        switch (code) {
+            case 200:
+                return STATUS_200;
+            case 206:
+                return STATUS_206;
+            case 304:
+                return STATUS_304;
+            case 404:
+                return STATUS_404;
+            case 500:
+                return STATUS_500;
+            default:
+                return null;
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (buffer.remaining() < bytes.length) {
+            spill();
+            buffer = pool.acquire();
+        }
+        buffer.put(bytes);
+    }
+
+    // header values are expected to be ASCII
+    private void putAscii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            if (!buffer.hasRemaining()) {
+                spill();
+                buffer = pool.acquire();
+            }
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private void putNumber(long value) throws IOException {
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        if (buffer.remaining() < digits.length - position) {
+            spill();
+            buffer = pool.acquire();
+        }
+        buffer.put(digits, position, digits.length - position);
+    }
+
+    // passes filled buffer to the stream, it is returned to the pool once written
+    private void spill() throws IOException {
+        buffer.flip();
+        out.writePooled(buffer, pool);
+        buffer = null;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static ByteBuffer directBuffer(byte[] bytes) {
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip().asReadOnlyBuffer();
+    }
+}
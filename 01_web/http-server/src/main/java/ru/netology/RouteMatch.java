@@ -0,0 +1,54 @@
+package ru.netology;
+
+import java.nio.charset.StandardCharsets;
+
+// result of routing, reused for every request of a connection
+class RouteMatch {
+    private byte[] array;
+    private int[] offsets = new int[0];
+    private Handler handler;
+    private Metrics.RouteStats stats;
+    private String[] names;
+
+    void reset(byte[] array, int maxParams) {
+        this.array = array;
+        if (offsets.length < maxParams * 2) {
+            offsets = new int[maxParams * 2];
+        }
+        handler = null;
+        stats = null;
+        names = null;
+    }
+
+    void capture(int index, int start, int end) {
+        offsets[index * 2] = start;
+        offsets[index * 2 + 1] = end;
+    }
+
+    void found(Handler handler, String[] names, Metrics.RouteStats stats) {
+        this.handler = handler;
+        this.names = names;
+        this.stats = stats;
+    }
+
+    Handler handler() {
+        return handler;
+    }
+
+    Metrics.RouteStats stats() {
+        return stats;
+    }
+
+    String param(String name) {
+        if (names == null) {
+            return null;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return new String(array, offsets[i * 2], offsets[i * 2 + 1] - offsets[i * 2],
+                        StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+}
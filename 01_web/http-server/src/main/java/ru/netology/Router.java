@@ -0,0 +1,165 @@
+package ru.netology;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// per method radix trees over path bytes, {name} segments capture everything up to the next '/'
+// routes are expected to be registered before the server starts
+class Router {
+    private final Map<String, Node> roots = new ConcurrentHashMap<>();
+    private int maxParams;
+
+    synchronized void add(String method, String pattern, Handler handler, Metrics.RouteStats stats) {
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Path must start with '/': " + pattern);
+        }
+        Node node = roots.computeIfAbsent(method, key -> new Node(new byte[0]));
+        final List<String> names = new ArrayList<>();
+        int i = 0;
+        while (i < pattern.length()) {
+            final int open = pattern.indexOf('{', i);
+            final int staticEnd = open == -1 ? pattern.length() : open;
+            if (staticEnd > i) {
+                node = node.insertStatic(pattern.substring(i, staticEnd).getBytes(StandardCharsets.UTF_8));
+            }
+            if (open == -1) {
+                break;
+            }
+            final int close = pattern.indexOf('}', open);
+            if (close == -1 || close == open + 1) {
+                throw new IllegalArgumentException("Invalid path parameter in " + pattern);
+            }
+            if (close + 1 < pattern.length() && pattern.charAt(close + 1) != '/') {
+                throw new IllegalArgumentException("Path parameter must be a whole segment in " + pattern);
+            }
+            names.add(pattern.substring(open + 1, close));
+            if (node.param == null) {
+                node.param = new Node(new byte[0]);
+            }
+            node = node.param;
+            i = close + 1;
+        }
+        node.handler = handler;
+        node.stats = stats;
+        node.paramNames = names.toArray(new String[0]);
+        maxParams = Math.max(maxParams, names.size());
+    }
+
+    // matches path bytes array[start, end), captures are stored into match
+    boolean route(String method, byte[] array, int start, int end, RouteMatch match) {
+        final Node root = roots.get(method);
+        match.reset(array, maxParams);
+        return root != null && match(root, array, start, end, match, 0);
+    }
+
+    private static boolean match(Node node, byte[] array, int position, int end, RouteMatch match, int depth) {
+        final byte[] prefix = node.prefix;
+        if (end - position < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (array[position + i] != prefix[i]) {
+                return false;
+            }
+        }
+        position += prefix.length;
+
+        if (position == end) {
+            if (node.handler == null) {
+                return false;
+            }
+            match.found(node.handler, node.paramNames, node.stats);
+            return true;
+        }
+
+        // static routes win over parameters
+        final Node child = node.child(array[position]);
+        if (child != null && match(child, array, position, end, match, depth)) {
+            return true;
+        }
+        if (node.param != null) {
+            int segmentEnd = position;
+            while (segmentEnd < end && array[segmentEnd] != '/') {
+                segmentEnd++;
+            }
+            if (segmentEnd > position) {
+                match.capture(depth, position, segmentEnd);
+                return match(node.param, array, segmentEnd, end, match, depth + 1);
+            }
+        }
+        return false;
+    }
+
+    private static class Node {
+        private byte[] prefix;
+        private Node[] children = new Node[0];
+        private Node param;
+        private Handler handler;
+        private Metrics.RouteStats stats;
+        private String[] paramNames;
+
+        private Node(byte[] prefix) {
+            this.prefix = prefix;
+        }
+
+        private Node child(byte first) {
+            for (Node child : children) {
+                if (child.prefix[0] == first) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        // returns node at the end of inserted bytes
+        private Node insertStatic(byte[] bytes) {
+            Node node = this;
+            int position = 0;
+            while (position < bytes.length) {
+                Node child = node.child(bytes[position]);
+                if (child == null) {
+                    child = new Node(Arrays.copyOfRange(bytes, position, bytes.length));
+                    node.addChild(child);
+                    return child;
+                }
+                int common = 0;
+                while (common < child.prefix.length && position + common < bytes.length
+                        && child.prefix[common] == bytes[position + common]) {
+                    common++;
+                }
+                if (common < child.prefix.length) {
+                    child.split(common);
+                }
+                position += common;
+                node = child;
+            }
+            return node;
+        }
+
+        // keeps first length bytes of prefix in this node, moves the rest into a new child
+        private void split(int length) {
+            final Node rest = new Node(Arrays.copyOfRange(prefix, length, prefix.length));
+            rest.children = children;
+            rest.param = param;
+            rest.handler = handler;
+            rest.stats = stats;
+            rest.paramNames = paramNames;
+
+            prefix = Arrays.copyOf(prefix, length);
+            children = new Node[]{rest};
+            param = null;
+            handler = null;
+            stats = null;
+            paramNames = null;
+        }
+
+        private void addChild(Node child) {
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+        }
+    }
+}
@@ -1,35 +1,155 @@
 package ru.netology;
 
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
+import ru.netology.http.AccessLog;
+import ru.netology.http.ChunkedInputStream;
+import ru.netology.http.ExecutorStrategy;
+import ru.netology.http.RequestParser;
+
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.ServerSocket;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Server {
     private static final List<String> VALID_PATHS = List.of("/index.html", "/spring.svg", "/spring.png", "/resources.html", "/styles.css", "/app.js", "/links.html", "/forms.html", "/classic.html", "/events.html", "/events.js");
     private static final int PORT = 9999;
     private static final int THREADS_COUNT = 64;
+    // connections waiting for a free thread, more are refused instead of piling up
+    private static final int WORK_QUEUE_CAPACITY = 256;
+    // open connections of all modes, accepted ones above it get 503
+    private static final int MAX_CONNECTIONS = 4096;
+    // connections not accepted yet are kept by the OS up to this count
+    private static final int ACCEPT_BACKLOG = 1024;
+    static final int RETRY_AFTER_SECONDS = 1;
+    private static final String METRICS_PATH = "/metrics";
+    private static final String METRICS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final Path ACCESS_LOG_FILE = Path.of(".", "logs", "access.log");
+    private static final int ACCESS_LOG_CAPACITY = 8192;
+    private static final long ACCESS_LOG_MAX_FILE_BYTES = 10 * 1024 * 1024;
+    private static final int ACCESS_LOG_MAX_FILES = 5;
+    static final int IDLE_TIMEOUT_MILLIS = 5_000;
+    static final int MAX_REQUESTS_PER_CONNECTION = 100;
+    static final int READ_BUFFER_SIZE = 8 * 1024;
+    static final int MAX_REQUEST_SIZE = 1024 * 1024;
+    static final Response INTERNAL_SERVER_ERROR = new Response(500, "Internal Server Error", null, new byte[0]);
+    private static final Set<String> TEMPLATE_PATHS = Set.of("/classic.html");
+    private static final Path PUBLIC_DIR = Path.of(".", "public");
+    private static final long STATIC_CACHE_MAX_BYTES = 32 * 1024 * 1024;
+    private static final long STATIC_CACHE_MAX_ENTRY_BYTES = 1024 * 1024;
+    private static final int RESPONSE_BUFFER_SIZE = 4 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 1024;
+    static final BufferPool BUFFER_POOL = new BufferPool(RESPONSE_BUFFER_SIZE, MAX_POOLED_BUFFERS);
+
+    private final Router router = new Router();
+    private final Map<String, String> mimeTypes = new ConcurrentHashMap<>();
+    private final ExecutorStrategy executorStrategy;
+    private final CacheControl cacheControl = new CacheControl();
+    private final StaticCache staticCache =
+            new StaticCache(PUBLIC_DIR, STATIC_CACHE_MAX_BYTES, STATIC_CACHE_MAX_ENTRY_BYTES, cacheControl);
+    private final TemplateCache templateCache = new TemplateCache(PUBLIC_DIR);
+    private final FileWatcher publicWatcher = new FileWatcher(PUBLIC_DIR);
+    private final Semaphore connections = new Semaphore(MAX_CONNECTIONS);
+    private final Metrics metrics = new Metrics();
+    private final AccessLog accessLog =
+            new AccessLog(ACCESS_LOG_FILE, ACCESS_LOG_CAPACITY, ACCESS_LOG_MAX_FILE_BYTES, ACCESS_LOG_MAX_FILES);
+
+    public Server() {
+        this(ExecutorStrategy.FIXED_POOL);
+    }
 
-    private final Map<String, Handler> handlerMap = new ConcurrentHashMap<>();
+    public Server(ExecutorStrategy executorStrategy) {
+        this.executorStrategy = executorStrategy;
+        publicWatcher.addListener(staticCache::invalidate);
+        publicWatcher.addListener(templateCache::invalidate);
+        // admin endpoint for Prometheus scraping
+        router.add("GET", METRICS_PATH, this::writeMetrics, metrics.route("GET " + METRICS_PATH));
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
 
     @SuppressWarnings("InfiniteLoopStatement")
     public void start() {
-        final ExecutorService executorService = Executors.newFixedThreadPool(THREADS_COUNT);
-        try (final var serverSocket = new ServerSocket(PORT)) {
+        final ExecutorService executorService = executorStrategy.create(THREADS_COUNT, WORK_QUEUE_CAPACITY);
+        publicWatcher.start();
+        accessLog.start();
+        // channel based sockets are needed to send static files with transferTo
+        try (final var serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(PORT), ACCEPT_BACKLOG);
+            while (true) {
+                try {
+                    final SocketChannel channel = serverChannel.accept();
+                    if (!admit(channel)) {
+                        continue;
+                    }
+                    try {
+                        executorService.submit(getServerTask(channel.socket()));
+                    } catch (RejectedExecutionException e) {
+                        // all threads are busy and the queue is full
+                        connectionClosed();
+                        reject(channel);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void startNio() {
+        startNio(Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("InfiniteLoopStatement")
+    public void startNio(int reactorsCount) {
+        final Reactor[] reactors = new Reactor[reactorsCount];
+        // shared by all reactors for handlers and static files not in memory yet
+        final ExecutorService workers = executorStrategy.create(THREADS_COUNT, WORK_QUEUE_CAPACITY);
+        try {
+            for (int i = 0; i < reactorsCount; i++) {
+                reactors[i] = new Reactor(this, workers);
+                new Thread(reactors[i], "reactor-" + i).start();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        publicWatcher.start();
+        accessLog.start();
+
+        // one acceptor thread, connections are spread over reactors round-robin
+        try (final var serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(PORT), ACCEPT_BACKLOG);
+            int next = 0;
             while (true) {
                 try {
-                    final Socket socket = serverSocket.accept();
-                    executorService.submit(getServerTask(socket));
+                    final SocketChannel channel = serverChannel.accept();
+                    if (!admit(channel)) {
+                        continue;
+                    }
+                    reactors[next].register(channel);
+                    next = (next + 1) % reactorsCount;
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
@@ -40,7 +160,18 @@ public class Server {
     }
 
     public void addHandler(String method, String path, Handler handler) {
-        handlerMap.put(method + " " + path, handler);
+        router.add(method, path, handler, metrics.route(method + " " + path));
+    }
+
+    public void addAsyncHandler(String method, String path, AsyncHandler handler) {
+        router.add(method, path, new AsyncRoute(handler), metrics.route(method + " " + path));
+    }
+
+    // null value removes Cache-Control header for files with the extension
+    public void setCacheControl(String extension, String value) {
+        cacheControl.set(extension, value);
+        // cached responses contain the old value
+        staticCache.invalidate(null);
     }
 
     private Runnable getServerTask(final Socket socket) {
@@ -50,116 +181,363 @@ public class Server {
                 socket.close();
             } catch (IOException e) {
                 e.printStackTrace();
+            } finally {
+                connectionClosed();
             }
         };
     }
 
+    // refuses the connection with 503 when the server already has too many of them
+    private boolean admit(SocketChannel channel) {
+        if (connections.tryAcquire()) {
+            metrics.connectionOpened();
+            return true;
+        }
+        reject(channel);
+        return false;
+    }
+
+    void connectionClosed() {
+        metrics.connectionClosed();
+        connections.release();
+    }
+
+    // acceptor thread must never block on a slow client, so only what fits the send buffer is written
+    private void reject(SocketChannel channel) {
+        metrics.connectionRejected();
+        try (channel) {
+            channel.configureBlocking(false);
+            channel.write(ResponseWriter.serviceUnavailable());
+        } catch (IOException e) {
+            // client is gone anyway
+        }
+    }
+
     private void handleConnection(final Socket socket) throws IOException {
-        try (final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-             final BufferedOutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+        try (final InputStream in = socket.getInputStream();
+             final ResponseStream out = new ChannelResponseStream(socket.getChannel())) {
 
-            final Request request = getRequest(in);
-            if (request == null) {
-                // just close socket
-                return;
+            socket.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+            final RequestBuffer input = new RequestBuffer(READ_BUFFER_SIZE, MAX_REQUEST_SIZE);
+            final RequestParser parser = new RequestParser();
+            final RouteMatch routeMatch = new RouteMatch();
+            // pipelined requests are simply read one after another from the same stream
+            for (int served = 1; served <= MAX_REQUESTS_PER_CONNECTION; served++) {
+                if (!readHead(in, input, parser)) {
+                    // just close socket
+                    return;
+                }
+                final long started = System.nanoTime();
+                // body is streamed from the socket while handler reads it
+                final RequestBuffer.BodySource source = input.bodySource(parser.headEnd(), in);
+                final Request request = new Request(input.buffer().array(), parser, routeMatch,
+                        bodyStream(parser, source),
+                        parser.isKeepAlive() && served < MAX_REQUESTS_PER_CONNECTION);
+                final Metrics.RouteStats stats = process(request, route(request), out);
+                if (request.isKeepAlive()) {
+                    // body must be read exactly, next pipelined request may follow it
+                    request.getBodyStream().transferTo(OutputStream.nullOutputStream());
+                }
+                complete(request, stats, out, started, source.requestBytes());
+                if (!request.isKeepAlive()) {
+                    return;
+                }
+                input.consume(source.position());
+                parser.reset();
             }
+        } catch (SocketTimeoutException e) {
+            // idle keep-alive connection, just close socket
+        }
+    }
 
-            final Handler handler = handlerMap.get(request.getMethod() + " " + request.getPath());
-            if (handler == null) {
-                if (!VALID_PATHS.contains(request.getPath())) {
-                    makeNotFoundResponse(out);
-                } else {
-                    makeResponseWithContent(out, request.getPath());
-                }
+    // returns null for static resources
+    Handler route(final Request request) {
+        return request.route(router);
+    }
+
+    // NIO reactors handle in place only what is served from memory: cached static files and 404,
+    // handlers and everything that reads the disk run on workers
+    boolean isInline(final Request request, final Handler handler) {
+        if (handler != null) {
+            return false;
+        }
+        final String path = request.getPath();
+        return !VALID_PATHS.contains(path) || !TEMPLATE_PATHS.contains(path) && staticCache.isCached(path);
+    }
+
+    // returns stats the request is counted in
+    Metrics.RouteStats process(final Request request, final Handler handler, final ResponseStream out)
+            throws IOException {
+        out.negotiate(request);
+        final Metrics.RouteStats stats;
+        if (handler == null) {
+            if (!VALID_PATHS.contains(request.getPath())) {
+                makeNotFoundResponse(out, request.isKeepAlive());
+                stats = metrics.notFound();
+            } else if (!request.getMethod().equals("GET") && !request.getMethod().equals("HEAD")) {
+                makeMethodNotAllowedResponse(out, request.isKeepAlive());
+                stats = metrics.staticFiles();
             } else {
-                handler.handle(request, out);
+                makeResponseWithContent(out, request);
+                stats = metrics.staticFiles();
             }
-            out.flush();
+        } else {
+            handler.handle(request, out);
+            stats = request.routeStats();
         }
+        out.endBody();
+        out.flush();
+        return stats;
     }
 
-    private Request getRequest(BufferedReader in) throws IOException {
-        // read only request line for simplicity
-        // must be in form GET /path HTTP/1.1
-        final String requestLine = in.readLine();
-        final String[] parts = requestLine.split(" ");
-        if (parts.length != 3) {
-            // just close socket
-            return null;
+    // called once the response is written, request must still be valid
+    void complete(Request request, Metrics.RouteStats stats, ResponseStream out, long startedNanos,
+                  long requestBytes) {
+        final long responseBytes = out.takeWrittenBytes();
+        stats.record(startedNanos, requestBytes, responseBytes);
+        request.logTo(accessLog, out.status(), responseBytes, startedNanos);
+    }
+
+    private void writeMetrics(Request request, ResponseStream out) throws IOException {
+        final byte[] body = metrics.render().getBytes(StandardCharsets.UTF_8);
+        out.writer()
+                .status(200, "OK")
+                .contentType(METRICS_CONTENT_TYPE)
+                .contentLength(body.length)
+                .connection(request.isKeepAlive())
+                .endHeaders();
+        out.write(body);
+    }
+
+    // reads request line and headers, returns false when connection should be closed
+    private boolean readHead(InputStream in, RequestBuffer input, RequestParser parser) throws IOException {
+        RequestParser.Result result;
+        while ((result = parser.parse(input.buffer())) == RequestParser.Result.INCOMPLETE) {
+            if (!input.ensureFree() || !input.readFrom(in)) {
+                return false;
+            }
         }
+        return result == RequestParser.Result.COMPLETE;
+    }
 
-        final StringBuilder headers = new StringBuilder();
-        final StringBuilder body = new StringBuilder();
-        boolean hasBody = false;
+    static InputStream bodyStream(RequestParser parser, RequestBuffer.BodySource source) {
+        return parser.isChunked()
+                ? new ChunkedInputStream(source)
+                : new FixedLengthInputStream(source, parser.contentLength());
+    }
+
+    private void makeNotFoundResponse(ResponseStream out, boolean keepAlive) throws IOException {
+        out.writer()
+                .status(404, "Not Found")
+                .contentLength(0)
+                .connection(keepAlive)
+                .endHeaders();
+    }
 
-        String inputLine = in.readLine();
-        while (inputLine.length() > 0) {
-            headers.append(inputLine);
-            if (inputLine.startsWith("Content-Length: ")) {
-                int index = inputLine.indexOf(':') + 1;
-                String len = inputLine.substring(index).trim();
-                if (Integer.parseInt(len) > 0) {
-                    hasBody = true;
+    private void makeMethodNotAllowedResponse(ResponseStream out, boolean keepAlive) throws IOException {
+        out.writer()
+                .status(405, "Method Not Allowed")
+                .header("Allow", "GET, HEAD")
+                .contentLength(0)
+                .connection(keepAlive)
+                .endHeaders();
+    }
+
+    static void writeResponse(final Response response, final boolean keepAlive,
+                              final ResponseStream out) throws IOException {
+        out.writer()
+                .status(response.getCode(), response.getDescription())
+                .contentType(response.getContentType())
+                .contentLength(response.getBody().length)
+                .connection(keepAlive)
+                .endHeaders();
+        out.write(response.getBody());
+    }
+
+    private void makeResponseWithContent(ResponseStream out, Request request) throws IOException {
+        final String path = request.getPath();
+        final boolean keepAlive = request.isKeepAlive();
+        // HEAD gets the same headers as GET, Content-Length included, but no body
+        final boolean withBody = !request.getMethod().equals("HEAD");
+        final Path filePath = PUBLIC_DIR.resolve(path.substring(1));
+
+        if (TEMPLATE_PATHS.contains(path)) {
+            final String mimeType = mimeTypes.computeIfAbsent(path, key -> probeContentType(filePath));
+            final Template template = templateCache.get(path);
+            final byte[][] values = template.bind(Map.of("time", LocalDateTime.now().toString()));
+            writeOkHeaders(out, mimeType, template.length(values), keepAlive);
+            if (withBody) {
+                template.writeTo(out, values);
+            }
+        } else {
+            final StaticCache.Entry cached = staticCache.get(path);
+            if (cached != null) {
+                final StaticCache.Entry entry = cached.forEncoding(out.isCompressionAllowed());
+                if (isNotModified(request, entry.validators())) {
+                    writeMessage(out, entry.notModified(), keepAlive, false);
+                    return;
+                }
+                final long length = cached.ok().body().remaining();
+                final long[] ranges = requestedRanges(request, cached.validators(), length);
+                if (ranges != null) {
+                    writePartial(out, ranges, length, cached.mimeType(), cached.validators(),
+                            cacheControl.forPath(path), keepAlive,
+                            (start, count) -> out.writeBuffers(cached.ok().body()
+                                    .position((int) start)
+                                    .limit((int) (start + count))));
+                    return;
                 }
+                writeMessage(out, entry.ok(), keepAlive, withBody);
+                return;
             }
-            inputLine = in.readLine();
-        }
 
-        if (hasBody) {
-            inputLine = in.readLine();
-            while (inputLine != null && inputLine.length() > 0) {
-                body.append(inputLine);
-                inputLine = in.readLine();
+            // too big for cache, sent uncompressed with sendfile
+            final Validators validators = staticCache.validators(path);
+            final String cacheControlValue = cacheControl.forPath(path);
+            if (isNotModified(request, validators)) {
+                writeValidators(out.writer().status(304, "Not Modified"), validators, cacheControlValue)
+                        .connection(keepAlive)
+                        .endHeaders();
+                return;
+            }
+            final String mimeType = mimeTypes.computeIfAbsent(path, key -> probeContentType(filePath));
+            // the channel is opened only when the headers are written, nothing is left open if they fail
+            final long length = Files.size(filePath);
+            final long[] ranges = requestedRanges(request, validators, length);
+            if (ranges != null) {
+                // positional transfers, every part opens its own channel as transferFrom closes it
+                writePartial(out, ranges, length, mimeType, validators, cacheControlValue, keepAlive,
+                        (start, count) -> out.transferFrom(FileChannel.open(filePath), start, count));
+                return;
+            }
+            writeValidators(out.writer().status(200, "OK"), validators, cacheControlValue)
+                    .contentType(mimeType)
+                    .contentLength(length)
+                    .header("Accept-Ranges", "bytes")
+                    .uncompressed()
+                    .connection(keepAlive)
+                    .endHeaders();
+            if (withBody) {
+                out.transferFrom(FileChannel.open(filePath), 0, length);
             }
         }
+    }
 
-        return new Request(parts[0], getCleanPath(parts[1]), headers.toString(), body.toString());
+    private static void writeMessage(ResponseStream out, StaticCache.Message message,
+                                     boolean keepAlive, boolean withBody) throws IOException {
+        out.recordStatus(message.status());
+        out.writeBuffers(message.head(), ResponseWriter.connectionHeader(keepAlive),
+                withBody ? message.tail() : message.headersEnd());
     }
 
-    private String getCleanPath(String path) {
-        if (path.contains("?")) {
-            return path.substring(0, path.indexOf("?"));
+    // null when the whole file must be sent
+    private static long[] requestedRanges(Request request, Validators validators, long length) {
+        final String range = request.getHeader("Range");
+        if (range == null || !request.getMethod().equals("GET")) {
+            return null;
+        }
+        // file was changed since the client got its part, so the whole new version is sent
+        final String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !validators.matchesIfRange(ifRange)) {
+            return null;
         }
-        return path;
+        return ByteRanges.parse(range, length);
     }
 
-    private void makeNotFoundResponse(BufferedOutputStream out) throws IOException {
-        final ResponseData responseData = new ResponseData(404, "Not Found", null, 0);
-        writeStatusAndHeaders(responseData, out);
-    }
+    private static void writePartial(ResponseStream out, long[] ranges, long length, String mimeType,
+                                     Validators validators, String cacheControlValue, boolean keepAlive,
+                                     RangeBody body) throws IOException {
+        if (ranges.length == 0) {
+            out.writer()
+                    .status(416, "Range Not Satisfiable")
+                    .header("Content-Range", "bytes */" + length)
+                    .contentLength(0)
+                    .connection(keepAlive)
+                    .endHeaders();
+            return;
+        }
+        if (ranges.length == 2) {
+            final long count = ranges[1] - ranges[0] + 1;
+            writeValidators(out.writer().status(206, "Partial Content"), validators, cacheControlValue)
+                    .contentType(mimeType)
+                    .header("Content-Range", contentRange(ranges[0], ranges[1], length))
+                    .contentLength(count)
+                    .uncompressed()
+                    .connection(keepAlive)
+                    .endHeaders();
+            body.write(ranges[0], count);
+            return;
+        }
 
-    private void writeStatusAndHeaders(final ResponseData data, final BufferedOutputStream out) throws IOException {
-        final StringBuilder respBuilder = new StringBuilder();
-        respBuilder.append("HTTP/1.1 ").append(data.getCode()).append(" ").append(data.getDescription()).append("\r\n");
-        if (data.getContentType() != null) {
-            respBuilder.append("Content-Type: ").append(data.getContentType()).append("\r\n");
+        final String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        final byte[][] partHeads = new byte[ranges.length / 2][];
+        long contentLength = 0;
+        for (int i = 0; i < partHeads.length; i++) {
+            final long start = ranges[i * 2];
+            final long end = ranges[i * 2 + 1];
+            final StringBuilder partHead = new StringBuilder();
+            partHead.append("\r\n--").append(boundary).append("\r\n");
+            if (mimeType != null) {
+                partHead.append("Content-Type: ").append(mimeType).append("\r\n");
+            }
+            partHead.append("Content-Range: ").append(contentRange(start, end, length)).append("\r\n\r\n");
+            partHeads[i] = partHead.toString().getBytes(StandardCharsets.US_ASCII);
+            contentLength += partHeads[i].length + end - start + 1;
         }
-        respBuilder.append("Content-Length: ").append(data.getContentLength()).append("\r\n");
-        respBuilder.append("Connection: close\r\n");
-        respBuilder.append("\r\n");
+        final byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
 
-        out.write(respBuilder.toString().getBytes());
+        writeValidators(out.writer().status(206, "Partial Content"), validators, cacheControlValue)
+                .contentType("multipart/byteranges; boundary=" + boundary)
+                .contentLength(contentLength)
+                .uncompressed()
+                .connection(keepAlive)
+                .endHeaders();
+        for (int i = 0; i < partHeads.length; i++) {
+            out.write(partHeads[i]);
+            body.write(ranges[i * 2], ranges[i * 2 + 1] - ranges[i * 2] + 1);
+        }
+        out.write(closing);
     }
 
-    private void makeResponseWithContent(BufferedOutputStream out, String path) throws IOException {
-        final Path filePath = Path.of(".", "public", path);
-        final String mimeType = Files.probeContentType(filePath);
+    private static String contentRange(long start, long end, long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
 
-        // special case for classic
-        if (path.equals("/classic.html")) {
-            final String template = Files.readString(filePath);
-            final byte[] content = template.replace(
-                    "{time}",
-                    LocalDateTime.now().toString()
-            ).getBytes();
-            final ResponseData responseData = new ResponseData(200, "OK", mimeType, content.length);
-            writeStatusAndHeaders(responseData, out);
-            out.write(content);
-        } else {
-            final long length = Files.size(filePath);
-            final ResponseData responseData = new ResponseData(200, "OK", mimeType, length);
-            writeStatusAndHeaders(responseData, out);
-            Files.copy(filePath, out);
+    private static boolean isNotModified(Request request, Validators validators) {
+        final String method = request.getMethod();
+        // other methods must not be answered with 304
+        return (method.equals("GET") || method.equals("HEAD"))
+                && validators.notModified(request.getHeader("If-None-Match"), request.getHeader("If-Modified-Since"));
+    }
+
+    private static ResponseWriter writeValidators(ResponseWriter writer, Validators validators,
+                                                  String cacheControlValue) throws IOException {
+        writer.header("ETag", validators.etag())
+                .header("Last-Modified", validators.lastModified());
+        return cacheControlValue == null ? writer : writer.header("Cache-Control", cacheControlValue);
+    }
+
+    private static void writeOkHeaders(ResponseStream out, String mimeType, long length,
+                                       boolean keepAlive) throws IOException {
+        out.writer()
+                .status(200, "OK")
+                .contentType(mimeType)
+                .contentLength(length)
+                .connection(keepAlive)
+                .endHeaders();
+    }
+
+    // writes part of the file right after already written bytes
+    private interface RangeBody {
+        void write(long start, long count) throws IOException;
+    }
+
+    private static String probeContentType(Path filePath) {
+        try {
+            return Files.probeContentType(filePath);
+        } catch (IOException e) {
+            return null;
         }
     }
 }
\ No newline at end of file
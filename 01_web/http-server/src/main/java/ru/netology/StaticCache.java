@@ -0,0 +1,256 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// LRU cache of complete static responses with gzip variants and 304 heads, only Connection header is added on write
+class StaticCache {
+    private final Path root;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final CacheControl cacheControl;
+    // access order gives LRU iteration
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // files too big to be cached keep only their validators, hashing them is the costly part
+    private final Map<String, Validators> largeFiles = new HashMap<>();
+    private long totalBytes;
+    // bumped on every invalidation, so entries loaded before it are not stored
+    private long generation;
+
+    StaticCache(Path root, long maxBytes, long maxEntryBytes, CacheControl cacheControl) {
+        this.root = root;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.cacheControl = cacheControl;
+    }
+
+    // returns null when file is too big to be cached
+    Entry get(String path) throws IOException {
+        final long loadGeneration;
+        synchronized (this) {
+            final Entry entry = entries.get(path);
+            if (entry != null) {
+                return entry;
+            }
+            loadGeneration = generation;
+        }
+
+        final Entry entry = load(path);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                final Entry previous = entries.put(path, entry);
+                if (previous != null) {
+                    totalBytes -= previous.size();
+                }
+                totalBytes += entry.size();
+                evict();
+            }
+        }
+        return entry;
+    }
+
+    // true when get() would return the entry without reading the file
+    synchronized boolean isCached(String path) {
+        return entries.containsKey(path);
+    }
+
+    // validators of a file which is too big to be cached
+    Validators validators(String path) throws IOException {
+        final long loadGeneration;
+        synchronized (this) {
+            final Validators validators = largeFiles.get(path);
+            if (validators != null) {
+                return validators;
+            }
+            loadGeneration = generation;
+        }
+
+        final Validators validators = Validators.of(root.resolve(path.substring(1)));
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                largeFiles.put(path, validators);
+            }
+        }
+        return validators;
+    }
+
+    // null path invalidates everything
+    synchronized void invalidate(String path) {
+        generation++;
+        if (path == null) {
+            entries.clear();
+            largeFiles.clear();
+            totalBytes = 0;
+            return;
+        }
+        largeFiles.remove(path);
+        final Entry removed = entries.remove(path);
+        if (removed != null) {
+            totalBytes -= removed.size();
+        }
+    }
+
+    private void evict() {
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().size();
+            iterator.remove();
+        }
+    }
+
+    private Entry load(String path) throws IOException {
+        final Path filePath = root.resolve(path.substring(1));
+        if (Files.size(filePath) > maxEntryBytes) {
+            return null;
+        }
+        // read before content, so a concurrent change gives an older date and is revalidated later
+        final Instant lastModified = Files.getLastModifiedTime(filePath).toInstant();
+        final byte[] content = Files.readAllBytes(filePath);
+        final String mimeType = Files.probeContentType(filePath);
+        final Validators validators = Validators.of(content, lastModified);
+        final String cacheControlValue = cacheControl.forPath(path);
+        final boolean varies = GzipEncoder.isCompressible(mimeType) && content.length >= GzipEncoder.MIN_LENGTH;
+        if (!varies) {
+            return entry(mimeType, null, false, content, validators, cacheControlValue, null);
+        }
+
+        // compressed once per file version, kept only when it is actually smaller
+        final byte[] compressed = GzipEncoder.compress(content);
+        final Entry gzip = compressed.length < content.length
+                ? entry(mimeType, "gzip", true, compressed, validators.forEncoding("gzip"), cacheControlValue, null)
+                : null;
+        return entry(mimeType, null, true, content, validators, cacheControlValue, gzip);
+    }
+
+    private static Entry entry(String mimeType, String encoding, boolean varies, byte[] content,
+                               Validators validators, String cacheControl, Entry gzip) {
+        // headers shared by 200 and 304 responses
+        final StringBuilder common = new StringBuilder();
+        common.append("ETag: ").append(validators.etag()).append("\r\n");
+        common.append("Last-Modified: ").append(validators.lastModified()).append("\r\n");
+        if (cacheControl != null) {
+            common.append("Cache-Control: ").append(cacheControl).append("\r\n");
+        }
+        if (varies) {
+            common.append("Vary: Accept-Encoding\r\n");
+        }
+
+        final StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 200 OK\r\n");
+        if (mimeType != null) {
+            head.append("Content-Type: ").append(mimeType).append("\r\n");
+        }
+        head.append(common);
+        if (encoding != null) {
+            head.append("Content-Encoding: ").append(encoding).append("\r\n");
+        } else {
+            // ranges are served from the identity variant only
+            head.append("Accept-Ranges: bytes\r\n");
+        }
+        head.append("Content-Length: ").append(content.length).append("\r\n");
+
+        final Message ok = message(200, head, content);
+        final Message notModified = message(304, new StringBuilder("HTTP/1.1 304 Not Modified\r\n").append(common),
+                new byte[0]);
+        return new Entry(mimeType, validators, ok, notModified, gzip);
+    }
+
+    private static Message message(int status, CharSequence head, byte[] content) {
+        final byte[] headBytes = head.toString().getBytes(StandardCharsets.US_ASCII);
+        final ByteBuffer response = ByteBuffer.allocateDirect(headBytes.length + 2 + content.length);
+        response.put(headBytes).put((byte) '\r').put((byte) '\n').put(content).flip();
+        return new Message(status, response.asReadOnlyBuffer(), headBytes.length);
+    }
+
+    static class Entry {
+        private final String mimeType;
+        private final Validators validators;
+        private final Message ok;
+        private final Message notModified;
+        private final Entry gzip;
+
+        private Entry(String mimeType, Validators validators, Message ok, Message notModified, Entry gzip) {
+            this.mimeType = mimeType;
+            this.validators = validators;
+            this.ok = ok;
+            this.notModified = notModified;
+            this.gzip = gzip;
+        }
+
+        // gzip variant when it exists and client accepts it
+        Entry forEncoding(boolean acceptsGzip) {
+            return acceptsGzip && gzip != null ? gzip : this;
+        }
+
+        String mimeType() {
+            return mimeType;
+        }
+
+        Validators validators() {
+            return validators;
+        }
+
+        Message ok() {
+            return ok;
+        }
+
+        Message notModified() {
+            return notModified;
+        }
+
+        int size() {
+            return ok.size() + notModified.size() + (gzip != null ? gzip.size() : 0);
+        }
+    }
+
+    static class Message {
+        private final int status;
+        private final ByteBuffer response;
+        private final int headLength;
+
+        private Message(int status, ByteBuffer response, int headLength) {
+            this.status = status;
+            this.response = response;
+            this.headLength = headLength;
+        }
+
+        int status() {
+            return status;
+        }
+
+        // status line and headers without Connection header and final empty line
+        ByteBuffer head() {
+            return response.duplicate().limit(headLength);
+        }
+
+        // final empty line and body
+        ByteBuffer tail() {
+            return response.duplicate().position(headLength);
+        }
+
+        // final empty line only, for HEAD
+        ByteBuffer headersEnd() {
+            return response.duplicate().position(headLength).limit(headLength + 2);
+        }
+
+        // content without head, position and limit may be changed freely
+        ByteBuffer body() {
+            return response.duplicate().position(headLength + 2).slice();
+        }
+
+        int size() {
+            return response.capacity();
+        }
+    }
+}
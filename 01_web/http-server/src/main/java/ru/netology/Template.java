@@ -0,0 +1,86 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// template parsed once into static byte chunks and {name} placeholders between them
+class Template {
+    private final byte[][] chunks;
+    private final String[] names;
+    private final byte[][] placeholders;
+
+    private Template(byte[][] chunks, String[] names) {
+        this.chunks = chunks;
+        this.names = names;
+        this.placeholders = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            placeholders[i] = ("{" + names[i] + "}").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    static Template parse(byte[] source) {
+        final List<byte[]> chunks = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+        int chunkStart = 0;
+        int i = 0;
+        while (i < source.length) {
+            if (source[i] != '{') {
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < source.length && isNameByte(source[end])) {
+                end++;
+            }
+            if (end == i + 1 || end == source.length || source[end] != '}') {
+                // not a placeholder, e.g. css or js block
+                i++;
+                continue;
+            }
+            chunks.add(Arrays.copyOfRange(source, chunkStart, i));
+            names.add(new String(source, i + 1, end - i - 1, StandardCharsets.US_ASCII));
+            i = end + 1;
+            chunkStart = i;
+        }
+        chunks.add(Arrays.copyOfRange(source, chunkStart, source.length));
+        return new Template(chunks.toArray(new byte[0][]), names.toArray(new String[0]));
+    }
+
+    // encodes values in placeholders order, unknown placeholders are left as is
+    byte[][] bind(Map<String, String> values) {
+        final byte[][] bound = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            final String value = values.get(names[i]);
+            bound[i] = value == null ? placeholders[i] : value.getBytes(StandardCharsets.UTF_8);
+        }
+        return bound;
+    }
+
+    long length(byte[][] bound) {
+        long length = 0;
+        for (byte[] chunk : chunks) {
+            length += chunk.length;
+        }
+        for (byte[] value : bound) {
+            length += value.length;
+        }
+        return length;
+    }
+
+    void writeTo(OutputStream out, byte[][] bound) throws IOException {
+        for (int i = 0; i < bound.length; i++) {
+            out.write(chunks[i]);
+            out.write(bound[i]);
+        }
+        out.write(chunks[chunks.length - 1]);
+    }
+
+    private static boolean isNameByte(byte b) {
+        return b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9' || b == '_';
+    }
+}
@@ -0,0 +1,42 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class TemplateCache {
+    private final Path root;
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+    TemplateCache(Path root) {
+        this.root = root;
+    }
+
+    Template get(String path) throws IOException {
+        try {
+            return templates.computeIfAbsent(path, key -> load(root.resolve(key.substring(1))));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // null path invalidates everything
+    void invalidate(String path) {
+        if (path == null) {
+            templates.clear();
+            return;
+        }
+        templates.remove(path);
+    }
+
+    private static Template load(Path filePath) {
+        try {
+            return Template.parse(Files.readAllBytes(filePath));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
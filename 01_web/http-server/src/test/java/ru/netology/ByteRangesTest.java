@@ -0,0 +1,48 @@
+package ru.netology;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ByteRangesTest {
+    private static final long LENGTH = 1000;
+
+    @Test
+    void parsesSingleRange() {
+        assertArrayEquals(new long[]{0, 99}, ByteRanges.parse("bytes=0-99", LENGTH));
+        assertArrayEquals(new long[]{500, 999}, ByteRanges.parse("bytes=500-", LENGTH));
+        assertArrayEquals(new long[]{900, 999}, ByteRanges.parse("bytes=-100", LENGTH));
+        // end past the file is cut to its last byte
+        assertArrayEquals(new long[]{990, 999}, ByteRanges.parse("bytes=990-5000", LENGTH));
+        assertArrayEquals(new long[]{0, 999}, ByteRanges.parse("bytes=-5000", LENGTH));
+        assertArrayEquals(new long[]{0, 0}, ByteRanges.parse("Bytes=0-0", LENGTH));
+    }
+
+    @Test
+    void parsesMultipleRanges() {
+        assertArrayEquals(new long[]{0, 9, 20, 29, 990, 999},
+                ByteRanges.parse("bytes=0-9, 20-29,-10", LENGTH));
+        // unsatisfiable ranges are dropped, the rest is served
+        assertArrayEquals(new long[]{0, 9}, ByteRanges.parse("bytes=0-9,2000-3000", LENGTH));
+    }
+
+    @Test
+    void returnsEmptyWhenNothingIsSatisfiable() {
+        assertArrayEquals(new long[0], ByteRanges.parse("bytes=1000-", LENGTH));
+        assertArrayEquals(new long[0], ByteRanges.parse("bytes=2000-3000,5000-", LENGTH));
+        assertArrayEquals(new long[0], ByteRanges.parse("bytes=-0", LENGTH));
+        assertArrayEquals(new long[0], ByteRanges.parse("bytes=-10", 0));
+    }
+
+    @Test
+    void ignoresInvalidHeader() {
+        assertNull(ByteRanges.parse("items=0-9", LENGTH));
+        assertNull(ByteRanges.parse("bytes=9-0", LENGTH));
+        assertNull(ByteRanges.parse("bytes=abc", LENGTH));
+        assertNull(ByteRanges.parse("bytes=-", LENGTH));
+        assertNull(ByteRanges.parse("bytes=+1-2", LENGTH));
+        assertNull(ByteRanges.parse("bytes=0-1234567890123456789", LENGTH));
+        assertNull(ByteRanges.parse("bytes=" + "0-0,".repeat(17), LENGTH));
+    }
+}
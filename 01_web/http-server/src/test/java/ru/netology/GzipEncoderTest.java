@@ -0,0 +1,104 @@
+package ru.netology;
+
+import org.junit.jupiter.api.Test;
+import ru.netology.http.ChunkedInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GzipEncoderTest {
+    private static final byte[] BODY = body(20_000);
+
+    @Test
+    void encodesBodyWrittenInParts() throws IOException {
+        final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        final ResponseStream out = new TestResponseStream(sent);
+        out.startGzip(BODY.length);
+        for (int off = 0; off < BODY.length; off += 3000) {
+            out.write(BODY, off, Math.min(3000, BODY.length - off));
+        }
+        out.endBody();
+        out.flush();
+
+        final ByteArrayInputStream chunked = new ByteArrayInputStream(sent.toByteArray());
+        final byte[] compressed = new ChunkedInputStream(chunked).readAllBytes();
+        // nothing follows the last chunk
+        assertEquals(0, chunked.available());
+        try (final GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(BODY, gzip.readAllBytes());
+        }
+        out.close();
+    }
+
+    @Test
+    void failsWhenBodyIsLonger() throws IOException {
+        final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        final ResponseStream out = new TestResponseStream(sent);
+        out.startGzip(BODY.length - 1);
+        assertThrows(IOException.class, () -> out.write(BODY));
+
+        out.startGzip(BODY.length);
+        out.write(BODY);
+        // once the declared body is written, nothing more may go after the last chunk
+        out.flush();
+        final int length = sent.size();
+        assertThrows(IOException.class, () -> out.write(1));
+        out.flush();
+        assertEquals(length, sent.size());
+        out.close();
+    }
+
+    @Test
+    void failsWhenBodyIsShorter() throws IOException {
+        final ResponseStream out = new TestResponseStream(new ByteArrayOutputStream());
+        out.startGzip(BODY.length);
+        out.write(BODY, 0, BODY.length - 1);
+        assertThrows(IOException.class, out::endBody);
+        out.close();
+    }
+
+    private static byte[] body(int length) {
+        final byte[] body = new byte[length];
+        Arrays.fill(body, (byte) 'a');
+        for (int i = 0; i < length; i += 7) {
+            body[i] = (byte) i;
+        }
+        return body;
+    }
+
+    // collects everything written into memory
+    private static class TestResponseStream extends ResponseStream {
+        TestResponseStream(ByteArrayOutputStream out) {
+            super(out, new BufferPool(1024, 1));
+        }
+
+        @Override
+        public void writeBuffers(ByteBuffer... buffers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void transferFrom(FileChannel file, long position, long count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        void writePooled(ByteBuffer buffer, BufferPool pool) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        long takeWrittenBytes() {
+            return 0;
+        }
+    }
+}
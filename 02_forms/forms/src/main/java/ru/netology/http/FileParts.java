@@ -0,0 +1,161 @@
+package ru.netology.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// saves uploaded files into the directory as they are received, small fields are kept in memory
+// a file is written under a temporary name and gets the name it was sent with once it is complete
+public class FileParts implements MultipartParser.PartHandler {
+  // at most 240 bytes in UTF-8, leaves room for the -N suffix within the usual 255 bytes limit
+  private static final int MAX_FILENAME_LENGTH = 80;
+
+  private final Path directory;
+  private final int maxFieldSize;
+  private final Map<String, List<String>> fields = new LinkedHashMap<>();
+  private final Map<String, List<Path>> files = new LinkedHashMap<>();
+  // every file of the request, complete or not, to be deleted on abort
+  private final List<Path> created = new ArrayList<>();
+
+  private MultipartParser.Part part;
+  private FileChannel channel;
+  private Path file;
+  private final ByteArrayOutputStream field = new ByteArrayOutputStream();
+
+  public FileParts(Path directory, int maxFieldSize) {
+    this.directory = directory;
+    this.maxFieldSize = maxFieldSize;
+  }
+
+  @Override
+  public void startPart(MultipartParser.Part part) throws IOException {
+    this.part = part;
+    field.reset();
+    // пустой input type="file" приходит с filename=""
+    if (part.isFile() && !part.filename().isEmpty()) {
+      Files.createDirectories(directory);
+      file = Files.createTempFile(directory, "upload-", ".part");
+      created.add(file);
+      channel = FileChannel.open(file, StandardOpenOption.WRITE);
+    }
+  }
+
+  @Override
+  public void content(byte[] array, int offset, int length) throws IOException {
+    if (channel != null) {
+      final var buffer = ByteBuffer.wrap(array, offset, length);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } else if (!part.isFile()) {
+      if (field.size() + length > maxFieldSize) {
+        throw new IOException("Field " + part.name() + " is larger than " + maxFieldSize + " bytes");
+      }
+      field.write(array, offset, length);
+    }
+  }
+
+  @Override
+  public void endPart() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+      files.computeIfAbsent(part.name(), key -> new ArrayList<>()).add(moveToOriginalName(file, part.filename()));
+      file = null;
+    } else if (!part.isFile() && part.name() != null) {
+      fields.computeIfAbsent(part.name(), key -> new ArrayList<>()).add(field.toString(StandardCharsets.UTF_8));
+    }
+    part = null;
+  }
+
+  // closes the file being written and deletes all files of the request, e.g. when the body is broken
+  public void abort() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      channel = null;
+      file = null;
+    }
+    for (Path path : created) {
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    created.clear();
+    files.clear();
+  }
+
+  // complete upload gets the name it was sent with, cleaned up, with -1, -2... when the name is taken
+  private Path moveToOriginalName(Path temp, String filename) throws IOException {
+    final var name = sanitize(filename);
+    final var dot = name.lastIndexOf('.');
+    final var base = dot > 0 ? name.substring(0, dot) : name;
+    final var extension = dot > 0 ? name.substring(dot) : "";
+    for (int i = 0; ; i++) {
+      final var target = directory.resolve(i == 0 ? name : base + "-" + i + extension);
+      try {
+        // the name is reserved first, so concurrent uploads never overwrite each other
+        Files.createFile(target);
+      } catch (FileAlreadyExistsException e) {
+        continue;
+      }
+      created.add(target);
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      created.remove(temp);
+      return target;
+    }
+  }
+
+  // only the last path segment is kept, without control characters and characters windows forbids,
+  // leading dots are dropped so nothing hidden or outside of the directory is created
+  static String sanitize(String filename) {
+    final var slash = Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\'));
+    final var name = new StringBuilder();
+    for (char c : filename.substring(slash + 1).toCharArray()) {
+      if (c < 0x20 || c == 0x7f || ":*?\"<>|".indexOf(c) != -1) {
+        continue;
+      }
+      if (c == '.' && name.length() == 0) {
+        continue;
+      }
+      name.append(c);
+    }
+    // trailing dots and spaces are dropped by windows
+    while (name.length() > 0 && (name.charAt(name.length() - 1) == '.' || name.charAt(name.length() - 1) == ' ')) {
+      name.setLength(name.length() - 1);
+    }
+    if (name.length() > MAX_FILENAME_LENGTH) {
+      // the end is kept, it has the extension
+      name.delete(0, name.length() - MAX_FILENAME_LENGTH);
+      if (Character.isLowSurrogate(name.charAt(0))) {
+        name.deleteCharAt(0);
+      }
+    }
+    return name.length() == 0 ? "upload" : name.toString();
+  }
+
+  // values of fields with the same name in the order they were sent
+  public Map<String, List<String>> fields() {
+    return fields;
+  }
+
+  public Map<String, List<Path>> files() {
+    return files;
+  }
+}
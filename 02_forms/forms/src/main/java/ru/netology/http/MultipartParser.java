@@ -0,0 +1,278 @@
+package ru.netology.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+// streaming multipart/form-data parser, parts content is passed to the handler as it is read
+// memory is one fixed buffer, so it doesn't depend on the size of the upload
+public class MultipartParser {
+  public interface PartHandler {
+    void startPart(Part part) throws IOException;
+
+    void content(byte[] array, int offset, int length) throws IOException;
+
+    void endPart() throws IOException;
+  }
+
+  public static class Part {
+    private final String name;
+    private final String filename;
+    private final String contentType;
+
+    private Part(String name, String filename, String contentType) {
+      this.name = name;
+      this.filename = filename;
+      this.contentType = contentType;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    // null for ordinary fields
+    public String filename() {
+      return filename;
+    }
+
+    public String contentType() {
+      return contentType;
+    }
+
+    public boolean isFile() {
+      return filename != null;
+    }
+  }
+
+  private enum State {
+    PREAMBLE, HEADERS, CONTENT, EPILOGUE
+  }
+
+  // part headers must fit into the buffer
+  private static final int BUFFER_SIZE = 8 * 1024;
+  // boundary is at most 70 characters
+  private static final int MAX_BOUNDARY_LENGTH = 70;
+  private static final byte[] CRLF = {'\r', '\n'};
+  private static final byte[] HEADERS_END = {'\r', '\n', '\r', '\n'};
+
+  // CRLF + "--" + boundary, CRLF before the first boundary is added by the parser
+  private final byte[] delimiter;
+  // Boyer-Moore-Horspool shifts by the byte under the end of the pattern
+  private final int[] shifts = new int[256];
+  private final PartHandler handler;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  private State state = State.PREAMBLE;
+
+  public MultipartParser(String boundary, PartHandler handler) {
+    if (boundary.isEmpty() || boundary.length() > MAX_BOUNDARY_LENGTH) {
+      throw new IllegalArgumentException("Invalid boundary: " + boundary);
+    }
+    this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+    this.handler = handler;
+    for (int i = 0; i < shifts.length; i++) {
+      shifts[i] = delimiter.length;
+    }
+    for (int i = 0; i < delimiter.length - 1; i++) {
+      shifts[delimiter[i] & 0xff] = delimiter.length - 1 - i;
+    }
+  }
+
+  // boundary parameter of multipart/form-data content type, null for other types
+  public static String boundary(String contentType) {
+    if (contentType == null) {
+      return null;
+    }
+    final var params = contentType.split(";");
+    if (!params[0].trim().equalsIgnoreCase("multipart/form-data")) {
+      return null;
+    }
+    for (int i = 1; i < params.length; i++) {
+      final var param = params[i].trim();
+      if (param.regionMatches(true, 0, "boundary=", 0, 9)) {
+        return unquote(param.substring(9));
+      }
+    }
+    return null;
+  }
+
+  // reads exactly length bytes of body, so nothing after the request is touched
+  public void parse(InputStream in, long length) throws IOException {
+    // body starts with the boundary without CRLF, so it is added to find every boundary the same way
+    System.arraycopy(CRLF, 0, buffer, 0, CRLF.length);
+    limit = CRLF.length;
+    long remaining = length;
+
+    while (true) {
+      final var progress = process();
+      if (state == State.EPILOGUE) {
+        break;
+      }
+      if (!progress) {
+        if (remaining == 0) {
+          throw new IOException("Unexpected end of multipart body");
+        }
+        // keep unprocessed bytes and read more after them
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        if (limit == buffer.length) {
+          throw new IOException("Part headers are too large");
+        }
+        final var read = in.read(buffer, limit, (int) Math.min(buffer.length - limit, remaining));
+        if (read == -1) {
+          throw new IOException("Unexpected end of multipart body");
+        }
+        limit += read;
+        remaining -= read;
+      }
+    }
+    // epilogue is ignored
+    while (remaining > 0) {
+      var skipped = in.skip(remaining);
+      if (skipped <= 0) {
+        if (in.read() == -1) {
+          break;
+        }
+        skipped = 1;
+      }
+      remaining -= skipped;
+    }
+  }
+
+  // returns false when more data is needed
+  private boolean process() throws IOException {
+    switch (state) {
+      case PREAMBLE:
+      case CONTENT:
+        return processContent();
+      case HEADERS:
+        return processHeaders();
+      default:
+        return true;
+    }
+  }
+
+  private boolean processContent() throws IOException {
+    final var found = indexOf(buffer, position, limit);
+    if (found == -1) {
+      // tail may be the start of a delimiter, it is kept until more data comes
+      final var safe = Math.max(position, limit - delimiter.length + 1);
+      emit(position, safe);
+      position = safe;
+      return false;
+    }
+    emit(position, found);
+    position = found;
+    // "--" after the last boundary or CRLF after the others
+    if (limit - position < delimiter.length + 2) {
+      return false;
+    }
+    final var after = position + delimiter.length;
+    if (state == State.CONTENT) {
+      handler.endPart();
+    }
+    if (buffer[after] == '-' && buffer[after + 1] == '-') {
+      state = State.EPILOGUE;
+      position = limit;
+      return true;
+    }
+    if (buffer[after] != '\r' || buffer[after + 1] != '\n') {
+      throw new IOException("Invalid multipart boundary line");
+    }
+    position = after + CRLF.length;
+    state = State.HEADERS;
+    return true;
+  }
+
+  private boolean processHeaders() throws IOException {
+    final int end;
+    if (limit - position >= CRLF.length && buffer[position] == '\r' && buffer[position + 1] == '\n') {
+      // part without headers
+      end = position;
+    } else {
+      final var found = indexOf(buffer, position, limit, HEADERS_END);
+      if (found == -1) {
+        return false;
+      }
+      end = found + CRLF.length;
+    }
+    final var headers = new String(buffer, position, end - position, StandardCharsets.UTF_8);
+    position = end + CRLF.length;
+    handler.startPart(parsePart(headers));
+    state = State.CONTENT;
+    return true;
+  }
+
+  private void emit(int from, int to) throws IOException {
+    if (state == State.CONTENT && to > from) {
+      handler.content(buffer, from, to - from);
+    }
+  }
+
+  private int indexOf(byte[] array, int from, int to) {
+    final var last = delimiter.length - 1;
+    var i = from;
+    while (i <= to - delimiter.length) {
+      var j = last;
+      while (j >= 0 && array[i + j] == delimiter[j]) {
+        j--;
+      }
+      if (j < 0) {
+        return i;
+      }
+      i += shifts[array[i + last] & 0xff];
+    }
+    return -1;
+  }
+
+  // from google guava with modifications
+  private static int indexOf(byte[] array, int start, int max, byte[] target) {
+    outer:
+    for (int i = start; i < max - target.length + 1; i++) {
+      for (int j = 0; j < target.length; j++) {
+        if (array[i + j] != target[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  private static Part parsePart(String headers) {
+    String name = null;
+    String filename = null;
+    String contentType = null;
+    for (String line : headers.split("\r\n")) {
+      final var colon = line.indexOf(':');
+      if (colon <= 0) {
+        continue;
+      }
+      final var header = line.substring(0, colon).trim();
+      final var value = line.substring(colon + 1).trim();
+      if (header.equalsIgnoreCase("Content-Type")) {
+        contentType = value;
+      } else if (header.equalsIgnoreCase("Content-Disposition")) {
+        // form-data; name="image"; filename="cat.png"
+        for (String param : value.split(";")) {
+          final var trimmed = param.trim();
+          if (trimmed.startsWith("name=")) {
+            name = unquote(trimmed.substring(5));
+          } else if (trimmed.startsWith("filename=")) {
+            filename = unquote(trimmed.substring(9));
+          }
+        }
+      }
+    }
+    return new Part(name, filename, contentType);
+  }
+
+  private static String unquote(String value) {
+    if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+      return value.substring(1, value.length() - 1);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,186 @@
+package ru.netology.http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+// принимает соединения и обрабатывает каждое в пуле потоков или в виртуальном потоке
+// request line и заголовки проверяются здесь, тело запроса отдается обработчику
+public class Server {
+  @FunctionalInterface
+  public interface BodyHandler {
+    // body - начало тела из буфера и дальше сокет, возвращает false, если тело некорректное
+    boolean handle(RequestParser parser, byte[] head, InputStream body) throws IOException;
+  }
+
+  // лимит на request line + заголовки
+  private static final int HEAD_LIMIT = 4096;
+  private static final int THREADS_COUNT = 64;
+  private static final int WORK_QUEUE_CAPACITY = 256;
+  // открытые соединения, принятые сверх лимита получают 503, у виртуальных потоков другого лимита нет
+  private static final int MAX_CONNECTIONS = 4096;
+  private static final int ACCEPT_BACKLOG = 1024;
+  // медленный клиент не держит поток дольше этого
+  private static final int READ_TIMEOUT_MILLIS = 30_000;
+  private static final byte[] OK = (
+      "HTTP/1.1 200 OK\r\n" +
+          "Content-Length: 0\r\n" +
+          "Connection: close\r\n" +
+          "\r\n"
+  ).getBytes();
+  private static final byte[] BAD_REQUEST = (
+      "HTTP/1.1 400 Bad Request\r\n" +
+          "Content-Length: 0\r\n" +
+          "Connection: close\r\n" +
+          "\r\n"
+  ).getBytes();
+  private static final byte[] SERVICE_UNAVAILABLE = (
+      "HTTP/1.1 503 Service Unavailable\r\n" +
+          "Retry-After: 1\r\n" +
+          "Content-Length: 0\r\n" +
+          "Connection: close\r\n" +
+          "\r\n"
+  ).getBytes();
+
+  private final List<String> allowedMethods;
+  private final BodyHandler bodyHandler;
+  private final ExecutorStrategy executorStrategy;
+  private final Semaphore connections = new Semaphore(MAX_CONNECTIONS);
+  // запись в файл идет в отдельном потоке, обработка запроса ее не ждет
+  private final AccessLog accessLog =
+      new AccessLog(Path.of(".", "logs", "access.log"), 8192, 10 * 1024 * 1024, 5);
+
+  public Server(List<String> allowedMethods, BodyHandler bodyHandler) {
+    this(allowedMethods, bodyHandler, ExecutorStrategy.FIXED_POOL);
+  }
+
+  public Server(List<String> allowedMethods, BodyHandler bodyHandler, ExecutorStrategy executorStrategy) {
+    this.allowedMethods = allowedMethods;
+    this.bodyHandler = bodyHandler;
+    this.executorStrategy = executorStrategy;
+  }
+
+  @SuppressWarnings("InfiniteLoopStatement")
+  public void listen(int port) {
+    final ExecutorService executorService = executorStrategy.create(THREADS_COUNT, WORK_QUEUE_CAPACITY);
+    accessLog.start();
+
+    try (final var serverSocket = new ServerSocket(port, ACCEPT_BACKLOG)) {
+      while (true) {
+        try {
+          final var socket = serverSocket.accept();
+          if (!connections.tryAcquire()) {
+            // слишком много открытых соединений, клиенту лучше повторить позже
+            reject(socket);
+            continue;
+          }
+          try {
+            executorService.submit(() -> {
+              try {
+                handleConnection(socket);
+              } finally {
+                connections.release();
+              }
+            });
+          } catch (RejectedExecutionException e) {
+            // все потоки заняты и очередь полна, клиенту лучше повторить позже
+            connections.release();
+            reject(socket);
+          }
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void handleConnection(Socket socket) {
+    try (
+        socket;
+        final var in = new BufferedInputStream(socket.getInputStream());
+        final var out = new BufferedOutputStream(socket.getOutputStream());
+    ) {
+      socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+      handle(in, out);
+    } catch (SocketTimeoutException e) {
+      // клиент замолчал, просто закрываем сокет
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void handle(BufferedInputStream in, BufferedOutputStream out) throws IOException {
+    final var started = System.nanoTime();
+    final var buffer = ByteBuffer.allocate(HEAD_LIMIT);
+    final var parser = new RequestParser();
+
+    // дочитываем, пока request line и заголовки не придут целиком
+    var result = parser.parse(buffer);
+    while (result == RequestParser.Result.INCOMPLETE && buffer.hasRemaining()) {
+      final var read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+      if (read == -1 && buffer.position() == 0) {
+        // соединение закрыли, ничего не отправив
+        return;
+      }
+      if (read == -1) {
+        break;
+      }
+      buffer.position(buffer.position() + read);
+      result = parser.parse(buffer);
+    }
+    final var bytes = buffer.array();
+    if (result != RequestParser.Result.COMPLETE) {
+      respond(out, BAD_REQUEST);
+      accessLog.log("-", bytes, 0, 0, 400, BAD_REQUEST.length, started);
+      return;
+    }
+
+    final var method = parser.method();
+    if (!allowedMethods.contains(method) || bytes[parser.targetStart()] != '/') {
+      respond(out, BAD_REQUEST);
+      accessLog.log(method, bytes, parser.targetStart(), parser.targetEnd(), 400, BAD_REQUEST.length, started);
+      return;
+    }
+
+    // начало тела могло уже попасть в буфер вместе с заголовками
+    final var body = new SequenceInputStream(
+        new ByteArrayInputStream(bytes, parser.headEnd(), buffer.position() - parser.headEnd()), in);
+    final byte[] response;
+    if (bodyHandler.handle(parser, bytes, body)) {
+      response = OK;
+    } else {
+      response = BAD_REQUEST;
+    }
+    respond(out, response);
+    accessLog.log(method, bytes, parser.targetStart(), parser.targetEnd(), response == OK ? 200 : 400,
+        response.length, started);
+  }
+
+  private static void reject(Socket socket) {
+    try (socket) {
+      // ответ маленький и влезает в буфер сокета, accept поток не блокируется
+      socket.getOutputStream().write(SERVICE_UNAVAILABLE);
+    } catch (IOException e) {
+      // клиент уже ушел
+    }
+  }
+
+  private static void respond(BufferedOutputStream out, byte[] response) throws IOException {
+    out.write(response);
+    out.flush();
+  }
+}
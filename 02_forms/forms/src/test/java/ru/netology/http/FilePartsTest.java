@@ -0,0 +1,93 @@
+package ru.netology.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilePartsTest {
+  private static final String BOUNDARY = "boundary";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void savesFilesUnderOriginalNames() throws IOException {
+    final var parts = upload(
+        file("image", "cat.png", "first"),
+        file("image", "cat.png", "second"),
+        file("doc", "../../etc/passwd", "third"),
+        field("title", "Hello"));
+
+    assertEquals(List.of(directory.resolve("cat.png"), directory.resolve("cat-1.png")), parts.files().get("image"));
+    assertEquals(List.of(directory.resolve("passwd")), parts.files().get("doc"));
+    assertEquals("second", Files.readString(directory.resolve("cat-1.png")));
+    assertEquals(List.of("Hello"), parts.fields().get("title"));
+    // no temporary files are left
+    assertEquals(List.of("cat-1.png", "cat.png", "passwd"), list());
+  }
+
+  @Test
+  void deletesEveryFileOnAbort() throws IOException {
+    final var parts = new FileParts(directory, 1024);
+    final var body = (file("image", "cat.png", "first") + "--" + BOUNDARY + "\r\nbroken")
+        .getBytes(StandardCharsets.UTF_8);
+    assertThrows(IOException.class,
+        () -> new MultipartParser(BOUNDARY, parts).parse(new ByteArrayInputStream(body), body.length));
+    parts.abort();
+    assertEquals(List.of(), list());
+  }
+
+  @Test
+  void sanitizesNames() {
+    assertEquals("cat.png", FileParts.sanitize("cat.png"));
+    assertEquals("passwd", FileParts.sanitize("../../etc/passwd"));
+    assertEquals("cat.png", FileParts.sanitize("C:\\Users\\me\\cat.png"));
+    assertEquals("htaccess", FileParts.sanitize(".htaccess"));
+    assertEquals("ab.txt", FileParts.sanitize("a\r\n<b>.txt..."));
+    assertEquals("upload", FileParts.sanitize(".."));
+    assertEquals("upload", FileParts.sanitize("dir/"));
+    assertEquals("фото.jpg", FileParts.sanitize("фото.jpg"));
+    final var longName = FileParts.sanitize("x".repeat(300) + ".tar.gz");
+    assertEquals(80, longName.length());
+    assertTrue(longName.endsWith(".tar.gz"));
+  }
+
+  private FileParts upload(String... parts) throws IOException {
+    final var body = (String.join("", parts) + "--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8);
+    final var fileParts = new FileParts(directory, 1024);
+    new MultipartParser(BOUNDARY, fileParts).parse(new ByteArrayInputStream(body), body.length);
+    return fileParts;
+  }
+
+  private List<String> list() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+    }
+  }
+
+  private static String file(String name, String filename, String content) {
+    return "--" + BOUNDARY + "\r\n" +
+        "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n" +
+        "\r\n" +
+        content + "\r\n";
+  }
+
+  private static String field(String name, String value) {
+    return "--" + BOUNDARY + "\r\n" +
+        "Content-Disposition: form-data; name=\"" + name + "\"\r\n" +
+        "\r\n" +
+        value + "\r\n";
+  }
+}
@@ -0,0 +1,173 @@
+package ru.netology.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MultipartParserTest {
+  private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+  // size of the parser buffer
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  @Test
+  void parsesFieldsAndFiles() throws IOException {
+    final var body = body(new byte[]{'\r', '\n', 0, '-', '-'});
+    final var parts = parse(new ByteArrayInputStream(body), body.length);
+
+    assertEquals(3, parts.size());
+    assertEquals("title", parts.get(0).name);
+    assertNull(parts.get(0).filename);
+    assertEquals("Hello", parts.get(0).content());
+    assertEquals("image", parts.get(1).name);
+    assertEquals("cat.png", parts.get(1).filename);
+    assertEquals("image/png", parts.get(1).contentType);
+    assertArrayEquals(new byte[]{'\r', '\n', 0, '-', '-'}, parts.get(1).content.toByteArray());
+    assertEquals("", parts.get(2).content());
+  }
+
+  @Test
+  void findsBoundarySplitAcrossReads() throws IOException {
+    final var file = content(300);
+    final var body = body(file);
+    // every read size up to twice the delimiter, so a boundary is cut at every position
+    for (int chunk = 1; chunk <= 2 * (BOUNDARY.length() + 4); chunk++) {
+      final var parts = parse(new ChunkInputStream(body, chunk), body.length);
+      assertEquals(3, parts.size(), "read size " + chunk);
+      assertArrayEquals(file, parts.get(1).content.toByteArray(), "read size " + chunk);
+    }
+  }
+
+  @Test
+  void findsBoundarySplitAcrossBufferEdge() throws IOException {
+    // file sizes that put the delimiter after the file across the end of the first buffer
+    for (int size = BUFFER_SIZE - 400; size <= BUFFER_SIZE; size++) {
+      final var file = content(size);
+      final var body = body(file);
+      final var parts = parse(new ByteArrayInputStream(body), body.length);
+      assertEquals(3, parts.size(), "file size " + size);
+      assertArrayEquals(file, parts.get(1).content.toByteArray(), "file size " + size);
+    }
+  }
+
+  @Test
+  void stopsAtContentLength() throws IOException {
+    final var body = body(content(10));
+    final var next = "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    final var in = new ByteArrayInputStream(concat(body, next));
+    parse(in, body.length);
+    assertArrayEquals(next, in.readAllBytes());
+  }
+
+  @Test
+  void failsOnTruncatedBody() {
+    final var body = body(content(100));
+    final var truncated = Arrays.copyOf(body, body.length - 20);
+    assertThrows(IOException.class, () -> parse(new ByteArrayInputStream(truncated), truncated.length));
+  }
+
+  @Test
+  void readsBoundaryFromContentType() {
+    assertEquals("abc", MultipartParser.boundary("multipart/form-data; boundary=abc"));
+    assertEquals("a b", MultipartParser.boundary("Multipart/Form-Data; charset=utf-8; Boundary=\"a b\""));
+    assertNull(MultipartParser.boundary("application/x-www-form-urlencoded"));
+    assertNull(MultipartParser.boundary(null));
+  }
+
+  private static List<RecordedPart> parse(InputStream in, long length) throws IOException {
+    final var parts = new ArrayList<RecordedPart>();
+    new MultipartParser(BOUNDARY, new MultipartParser.PartHandler() {
+      @Override
+      public void startPart(MultipartParser.Part part) {
+        parts.add(new RecordedPart(part));
+      }
+
+      @Override
+      public void content(byte[] array, int offset, int length) {
+        parts.get(parts.size() - 1).content.write(array, offset, length);
+      }
+
+      @Override
+      public void endPart() {
+      }
+    }).parse(in, length);
+    return parts;
+  }
+
+  private static byte[] body(byte[] file) {
+    final var head = "--" + BOUNDARY + "\r\n" +
+        "Content-Disposition: form-data; name=\"title\"\r\n" +
+        "\r\n" +
+        "Hello\r\n" +
+        "--" + BOUNDARY + "\r\n" +
+        "Content-Disposition: form-data; name=\"image\"; filename=\"cat.png\"\r\n" +
+        "Content-Type: image/png\r\n" +
+        "\r\n";
+    final var tail = "\r\n" +
+        "--" + BOUNDARY + "\r\n" +
+        "Content-Disposition: form-data; name=\"empty\"\r\n" +
+        "\r\n" +
+        "\r\n" +
+        "--" + BOUNDARY + "--\r\n";
+    return concat(concat(head.getBytes(StandardCharsets.US_ASCII), file), tail.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  // looks like the start of a boundary now and then
+  private static byte[] content(int size) {
+    final var content = new byte[size];
+    for (int i = 0; i < size; i++) {
+      content[i] = i % 97 < 4 ? (byte) "\r\n--".charAt(i % 97) : (byte) i;
+    }
+    return content;
+  }
+
+  private static byte[] concat(byte[] first, byte[] second) {
+    final var result = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+
+  private static class RecordedPart {
+    private final String name;
+    private final String filename;
+    private final String contentType;
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+    RecordedPart(MultipartParser.Part part) {
+      this.name = part.name();
+      this.filename = part.filename();
+      this.contentType = part.contentType();
+    }
+
+    String content() {
+      return content.toString(StandardCharsets.UTF_8);
+    }
+  }
+
+  // socket that hands out at most chunk bytes per read
+  private static class ChunkInputStream extends FilterInputStream {
+    private final int chunk;
+
+    ChunkInputStream(byte[] bytes, int chunk) {
+      super(new ByteArrayInputStream(bytes));
+      this.chunk = chunk;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return super.read(b, off, Math.min(len, chunk));
+    }
+  }
+}
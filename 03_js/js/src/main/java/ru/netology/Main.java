@@ -1,53 +1,41 @@
 package ru.netology;
 
-import org.glassfish.grizzly.CompletionHandler;
-import org.glassfish.grizzly.EmptyCompletionHandler;
-import org.glassfish.grizzly.Grizzly;
-import org.glassfish.grizzly.http.multipart.MultipartEntry;
-import org.glassfish.grizzly.http.multipart.MultipartEntryHandler;
-import org.glassfish.grizzly.http.multipart.MultipartScanner;
 import org.glassfish.grizzly.http.server.HttpHandler;
 import org.glassfish.grizzly.http.server.HttpServer;
 import org.glassfish.grizzly.http.server.Request;
 import org.glassfish.grizzly.http.server.Response;
 
 import java.io.IOException;
-import java.util.logging.Logger;
+import java.nio.file.Path;
+import java.util.Set;
 
 public class Main {
-  private static final Logger LOGGER = Grizzly.logger(Main.class);
+  private static final long MAX_UPLOAD_SIZE = 100 * 1024 * 1024;
+  private static final int MAX_PARTS = 16;
+  private static final long MAX_CACHE_SIZE = 16 * 1024 * 1024;
+  private static final long MAX_CACHED_FILE_SIZE = 1024 * 1024;
+  // served precompressed when the client accepts gzip
+  private static final Set<String> COMPRESSED_PATHS = Set.of("/index.html", "/js/app.js");
 
   public static void main(String[] args) throws IOException, InterruptedException {
-    final var server = HttpServer.createSimpleServer("static", 9999);
+    final var server = HttpServer.createSimpleServer(null, 9999);
+    final var staticHandler =
+        new StaticHandler(Path.of("static"), MAX_CACHE_SIZE, MAX_CACHED_FILE_SIZE, COMPRESSED_PATHS);
+    server.getServerConfiguration().addHttpHandler(staticHandler, "/");
+    server.getServerConfiguration().addHttpHandler(
+        new UploadHandler(Path.of("uploads"), MAX_UPLOAD_SIZE, MAX_PARTS), "/api");
     server.getServerConfiguration().addHttpHandler(new HttpHandler() {
       @Override
       public void service(Request request, Response response) throws Exception {
-        response.getWriter().write("ok");
-        //        response.suspend();
-        //        MultipartScanner.scan(request, multipartEntry -> {
-        //          LOGGER.info(multipartEntry.getContentDisposition().getDispositionParam("name"));
-        //          // TODO: handle entry
-        //        }, new EmptyCompletionHandler<>() {
-        //          @Override
-        //          public void completed(Request result) {
-        //            response.resume();
-        //            try {
-        //              response.getWriter().write("ok");
-        //            } catch (IOException e) {
-        //              e.printStackTrace();
-        //            }
-        //          }
-        //          @Override
-        //          public void failed(Throwable throwable) {
-        //            response.resume();
-        //          }
-        //        });
+        final var out = new StringBuilder();
+        staticHandler.writeMetrics(out);
+        response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        response.getWriter().write(out.toString());
       }
-    }, "/api");
+    }, "/metrics");
 
     server.start();
     Runtime.getRuntime().addShutdownHook(new Thread(server::shutdown));
     Thread.currentThread().join();
   }
 }
-
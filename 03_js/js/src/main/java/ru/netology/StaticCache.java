@@ -0,0 +1,187 @@
+package ru.netology;
+
+import org.glassfish.grizzly.http.util.MimeType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// LRU cache of static files bounded by total size, an entry is used only while the file keeps its mtime and size
+// configured paths also get a gzip variant, compressed once per file version
+class StaticCache {
+  private final long maxBytes;
+  private final long maxEntryBytes;
+  private final Set<String> compressedPaths;
+  // access order gives LRU iteration
+  private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  StaticCache(long maxBytes, long maxEntryBytes, Set<String> compressedPaths) {
+    this.maxBytes = maxBytes;
+    this.maxEntryBytes = maxEntryBytes;
+    this.compressedPaths = compressedPaths;
+  }
+
+  // returns null when file is too big to be cached
+  Entry get(String path, Path file, BasicFileAttributes attributes) throws IOException {
+    synchronized (this) {
+      final var entry = entries.get(path);
+      if (entry != null && entry.isVersion(attributes)) {
+        hits.increment();
+        return entry;
+      }
+    }
+    misses.increment();
+    if (attributes.size() > maxEntryBytes) {
+      return null;
+    }
+
+    final var entry = load(path, file, attributes);
+    synchronized (this) {
+      final var previous = entries.put(path, entry);
+      if (previous != null) {
+        totalBytes -= previous.size();
+      }
+      totalBytes += entry.size();
+      evict();
+    }
+    return entry;
+  }
+
+  // prometheus text format
+  void writeMetrics(StringBuilder out) {
+    final long bytes;
+    final int count;
+    synchronized (this) {
+      bytes = totalBytes;
+      count = entries.size();
+    }
+    out.append("# HELP static_cache_hits_total Static requests served from memory.\n");
+    out.append("# TYPE static_cache_hits_total counter\n");
+    out.append("static_cache_hits_total ").append(hits.sum()).append('\n');
+    out.append("# HELP static_cache_misses_total Static requests which read the file.\n");
+    out.append("# TYPE static_cache_misses_total counter\n");
+    out.append("static_cache_misses_total ").append(misses.sum()).append('\n');
+    out.append("# HELP static_cache_evictions_total Entries dropped to stay within the size limit.\n");
+    out.append("# TYPE static_cache_evictions_total counter\n");
+    out.append("static_cache_evictions_total ").append(evictions.sum()).append('\n');
+    out.append("# HELP static_cache_entries Files currently cached.\n");
+    out.append("# TYPE static_cache_entries gauge\n");
+    out.append("static_cache_entries ").append(count).append('\n');
+    out.append("# HELP static_cache_bytes Bytes of cached content with gzip variants.\n");
+    out.append("# TYPE static_cache_bytes gauge\n");
+    out.append("static_cache_bytes ").append(bytes).append('\n');
+  }
+
+  private void evict() {
+    final Iterator<Entry> iterator = entries.values().iterator();
+    while (totalBytes > maxBytes && iterator.hasNext()) {
+      totalBytes -= iterator.next().size();
+      iterator.remove();
+      evictions.increment();
+    }
+  }
+
+  private Entry load(String path, Path file, BasicFileAttributes attributes) throws IOException {
+    // attributes are read before content, so a concurrent change gives an older version and is reloaded later
+    final var content = Files.readAllBytes(file);
+    final var contentType = MimeType.getByFilename(file.getFileName().toString());
+    final var validators = Validators.of(content, attributes.lastModifiedTime().toInstant());
+    final var lastModified = attributes.lastModifiedTime();
+    final var length = attributes.size();
+    if (!compressedPaths.contains(path)) {
+      return new Entry(contentType, null, false, content, validators, lastModified, length, null);
+    }
+
+    // kept only when it is actually smaller
+    final var compressed = compress(content);
+    final var gzip = compressed.length < content.length
+        ? new Entry(contentType, "gzip", true, compressed, validators.forEncoding("gzip"), lastModified, length, null)
+        : null;
+    return new Entry(contentType, null, true, content, validators, lastModified, length, gzip);
+  }
+
+  private static byte[] compress(byte[] content) throws IOException {
+    final var compressed = new ByteArrayOutputStream(content.length / 2);
+    try (final var gzip = new GZIPOutputStream(compressed) {
+      {
+        def.setLevel(Deflater.BEST_COMPRESSION);
+      }
+    }) {
+      gzip.write(content);
+    }
+    return compressed.toByteArray();
+  }
+
+  static class Entry {
+    private final String contentType;
+    private final String encoding;
+    private final boolean varies;
+    private final byte[] content;
+    private final Validators validators;
+    private final FileTime lastModified;
+    private final long length;
+    private final Entry gzip;
+
+    private Entry(String contentType, String encoding, boolean varies, byte[] content, Validators validators,
+                  FileTime lastModified, long length, Entry gzip) {
+      this.contentType = contentType;
+      this.encoding = encoding;
+      this.varies = varies;
+      this.content = content;
+      this.validators = validators;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.gzip = gzip;
+    }
+
+    // gzip variant when it exists and client accepts it
+    Entry forEncoding(boolean acceptsGzip) {
+      return acceptsGzip && gzip != null ? gzip : this;
+    }
+
+    // null when the type is unknown
+    String contentType() {
+      return contentType;
+    }
+
+    // null for the identity variant
+    String encoding() {
+      return encoding;
+    }
+
+    // Vary: Accept-Encoding is sent when the file has a gzip variant
+    boolean varies() {
+      return varies;
+    }
+
+    byte[] content() {
+      return content;
+    }
+
+    Validators validators() {
+      return validators;
+    }
+
+    private boolean isVersion(BasicFileAttributes attributes) {
+      return lastModified.equals(attributes.lastModifiedTime()) && length == attributes.size();
+    }
+
+    private int size() {
+      return content.length + (gzip != null ? gzip.size() : 0);
+    }
+  }
+}
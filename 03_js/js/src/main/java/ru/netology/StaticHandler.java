@@ -0,0 +1,116 @@
+package ru.netology;
+
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.server.StaticHttpHandlerBase;
+import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.http.util.HttpStatus;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+
+// serves files of the root directory from StaticCache with ETag and Last-Modified validation
+// files too big for the cache are sent by grizzly as is
+public class StaticHandler extends StaticHttpHandlerBase {
+  private final Path root;
+  private final StaticCache cache;
+
+  public StaticHandler(Path root, long maxCacheBytes, long maxCachedFileBytes, Set<String> compressedPaths) {
+    this.root = root.toAbsolutePath().normalize();
+    this.cache = new StaticCache(maxCacheBytes, maxCachedFileBytes, compressedPaths);
+    // grizzly file cache would only keep a second copy of the same files
+    setFileCacheEnabled(false);
+  }
+
+  public void writeMetrics(StringBuilder out) {
+    cache.writeMetrics(out);
+  }
+
+  @Override
+  protected boolean handle(String uri, Request request, Response response) throws Exception {
+    final var method = request.getMethod();
+    if (method != Method.GET && method != Method.HEAD) {
+      response.setStatus(HttpStatus.METHOD_NOT_ALLOWED_405);
+      response.setHeader(Header.Allow, "GET, HEAD");
+      return true;
+    }
+
+    final var path = uri.endsWith("/") ? uri + "index.html" : uri;
+    final var file = root.resolve(path.substring(1)).normalize();
+    if (!file.startsWith(root)) {
+      return false;
+    }
+    final BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+    if (!attributes.isRegularFile()) {
+      return false;
+    }
+
+    final var cached = cache.get(path, file, attributes);
+    if (cached == null) {
+      pickupContentType(response, path);
+      addCachingHeaders(response, file.toFile());
+      sendFile(response, file.toFile());
+      return true;
+    }
+
+    final var entry = cached.forEncoding(acceptsGzip(request.getHeader(Header.AcceptEncoding)));
+    final var validators = entry.validators();
+    response.setHeader(Header.ETag, validators.etag());
+    response.setHeader(Header.LastModified, validators.lastModified());
+    if (entry.varies()) {
+      response.setHeader(Header.Vary, "Accept-Encoding");
+    }
+    if (validators.notModified(request.getHeader(Header.IfNoneMatch), request.getHeader(Header.IfModifiedSince))) {
+      response.setStatus(HttpStatus.NOT_MODIFIED_304);
+      return true;
+    }
+
+    if (entry.contentType() != null) {
+      response.setContentType(entry.contentType());
+    }
+    if (entry.encoding() != null) {
+      response.setHeader(Header.ContentEncoding, entry.encoding());
+    }
+    final var content = entry.content();
+    response.setContentLength(content.length);
+    if (method == Method.GET) {
+      response.getOutputStream().write(content);
+    }
+    return true;
+  }
+
+  // gzip with q=0 is refused
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      final var parts = coding.split(";");
+      final var name = parts[0].trim();
+      if (!name.equalsIgnoreCase("gzip")) {
+        continue;
+      }
+      for (int i = 1; i < parts.length; i++) {
+        final var parameter = parts[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            return Double.parseDouble(parameter.substring(2)) > 0;
+          } catch (NumberFormatException e) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+}
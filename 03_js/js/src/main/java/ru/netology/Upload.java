@@ -0,0 +1,372 @@
+package ru.netology;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.ReadHandler;
+import org.glassfish.grizzly.http.io.NIOInputStream;
+import org.glassfish.grizzly.http.multipart.MultipartEntry;
+import org.glassfish.grizzly.http.multipart.MultipartEntryHandler;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// state of one suspended multipart request, callbacks come from grizzly and file channel threads
+// response is sent once the scanner is done and every entry is on disk, or on the first error
+class Upload extends EmptyCompletionHandler<Request> implements MultipartEntryHandler {
+  private static final Logger LOGGER = Grizzly.logger(Upload.class);
+  // per entry, above it the grizzly thread waits until half of the queue is written, the connection
+  // is not read meanwhile, so memory of an upload is bounded and tcp flow control slows the client down
+  private static final long MAX_QUEUED_BYTES = 1024 * 1024;
+
+  private final Response response;
+  // opens and writes the files, so grizzly threads never wait for the disk
+  private final ExecutorService executor;
+  private final Path directory;
+  private final long maxUploadSize;
+  private final int maxParts;
+  private final List<Path> files = new ArrayList<>();
+  private final List<AsynchronousFileChannel> channels = new ArrayList<>();
+  private long received;
+  private int parts;
+  // entries which are not fully written yet
+  private int writing;
+  private boolean scanned;
+  private boolean finished;
+
+  Upload(Response response, ExecutorService executor, Path directory, long maxUploadSize, int maxParts) {
+    this.response = response;
+    this.executor = executor;
+    this.directory = directory;
+    this.maxUploadSize = maxUploadSize;
+    this.maxParts = maxParts;
+  }
+
+  static void reject(Response response, int status) {
+    response.setStatus(status);
+    // rest of the body is not read, so the connection can't be reused
+    response.setHeader("Connection", "close");
+    response.setContentLength(0);
+  }
+
+  @Override
+  public void handle(MultipartEntry entry) throws Exception {
+    final EntryWriter writer;
+    synchronized (this) {
+      if (finished) {
+        entry.skip();
+        return;
+      }
+      if (++parts > maxParts) {
+        fail(413);
+        entry.skip();
+        return;
+      }
+      writing++;
+      writer = new EntryWriter(entry);
+    }
+    // data is queued until the file is open
+    executor.execute(writer::open);
+    // may call the writer right away, so it is outside of the lock
+    entry.getNIOInputStream().notifyAvailable(writer);
+  }
+
+  @Override
+  public synchronized void completed(Request request) {
+    scanned = true;
+    complete();
+  }
+
+  @Override
+  public synchronized void failed(Throwable throwable) {
+    LOGGER.log(Level.FINE, "Broken multipart body", throwable);
+    fail(400);
+  }
+
+  // called by grizzly when the client is too slow, true cancels the response
+  synchronized boolean timeout(Response response) {
+    if (finished) {
+      return false;
+    }
+    finished = true;
+    cleanUp();
+    return true;
+  }
+
+  // false when the upload is already over, the file is then deleted by the caller
+  private synchronized boolean opened(Path file, AsynchronousFileChannel channel) {
+    if (finished) {
+      return false;
+    }
+    files.add(file);
+    channels.add(channel);
+    return true;
+  }
+
+  // false when the upload is over and the data should be dropped
+  private synchronized boolean receive(int bytes) {
+    received += bytes;
+    if (received > maxUploadSize) {
+      fail(413);
+    }
+    return !finished;
+  }
+
+  private synchronized void written() {
+    writing--;
+    complete();
+  }
+
+  private void complete() {
+    if (finished || !scanned || writing > 0) {
+      return;
+    }
+    finished = true;
+    try {
+      response.getWriter().write("ok");
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    response.resume();
+  }
+
+  private void fail(int status) {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    cleanUp();
+    reject(response, status);
+    response.resume();
+  }
+
+  // pending writes fail when their channel is closed, the writers then stop
+  private void cleanUp() {
+    for (AsynchronousFileChannel channel : channels) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    for (Path file : files) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  // grizzly calls the writer every time data of the entry comes, the data is taken right away and the scanner
+  // can go on, while writes to the file go one by one in order on the executor
+  // with too much data queued the call waits for the writes: grizzly turns off read interest of the connection
+  // while a worker handles its read and turns it back on only when the call returns, so nothing more is read
+  // from the socket; the entry stream is only read on grizzly threads, file threads reading it race with the scanner
+  // lock order is the writer, then the upload
+  private class EntryWriter implements ReadHandler, CompletionHandler<Integer, Buffer> {
+    private final String name;
+    private final NIOInputStream input;
+    private final ArrayDeque<Buffer> queue = new ArrayDeque<>();
+    // null until open() is done on the executor
+    private Path file;
+    private AsynchronousFileChannel channel;
+    private long queuedBytes;
+    // part of the queue head not written yet
+    private ByteBuffer data;
+    private long position;
+    private boolean busy;
+    private boolean last;
+    private boolean closed;
+
+    private EntryWriter(MultipartEntry entry) {
+      // grizzly reuses the entry object for the next part
+      this.name = entry.getContentDisposition().getDispositionParamUnquoted("name");
+      this.input = entry.getNIOInputStream();
+    }
+
+    @Override
+    public void onDataAvailable() {
+      take(false);
+    }
+
+    // must always take the data, grizzly moves the entry to the next part right after it
+    @Override
+    public void onAllDataRead() {
+      take(true);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      close();
+      Upload.this.failed(throwable);
+    }
+
+    @Override
+    public synchronized void completed(Integer written, Buffer buffer) {
+      position += written;
+      if (closed) {
+        dispose();
+        return;
+      }
+      if (data.hasRemaining()) {
+        channel.write(data, position, buffer, this);
+        return;
+      }
+      final var done = queue.poll();
+      queuedBytes -= done.remaining();
+      done.tryDispose();
+      if (queuedBytes <= MAX_QUEUED_BYTES / 2) {
+        // lets the waiting grizzly thread go on
+        notifyAll();
+      }
+      writeNext();
+    }
+
+    @Override
+    public void failed(Throwable throwable, Buffer buffer) {
+      synchronized (this) {
+        closed = true;
+        dispose();
+      }
+      synchronized (Upload.this) {
+        if (!finished) {
+          LOGGER.log(Level.WARNING, "Can't save " + name, throwable);
+          fail(500);
+        }
+      }
+    }
+
+    // executor thread
+    private void open() {
+      final Path file;
+      final AsynchronousFileChannel channel;
+      try {
+        Files.createDirectories(directory);
+        file = Files.createTempFile(directory, "upload-", ".part");
+        channel = AsynchronousFileChannel.open(file, Set.of(StandardOpenOption.WRITE), executor);
+      } catch (IOException e) {
+        failed(e, null);
+        return;
+      }
+      if (!opened(file, channel)) {
+        delete(file, channel);
+        // a grizzly thread may be waiting for this file
+        close();
+        return;
+      }
+      synchronized (this) {
+        this.file = file;
+        this.channel = channel;
+        if (closed) {
+          close();
+        } else if (!busy) {
+          writeNext();
+        }
+      }
+    }
+
+    private synchronized void take(boolean last) {
+      if (queuedBytes >= MAX_QUEUED_BYTES) {
+        awaitWrites();
+      }
+      if (closed || this.last) {
+        // dropped, but still taken, so the scanner goes on to the end of the body
+        input.readBuffer().tryDispose();
+        return;
+      }
+      final var buffer = input.readBuffer();
+      if (!receive(buffer.remaining())) {
+        buffer.tryDispose();
+        close();
+        return;
+      }
+      this.last = last;
+      if (buffer.hasRemaining()) {
+        queue.add(buffer);
+        queuedBytes += buffer.remaining();
+      } else {
+        buffer.tryDispose();
+      }
+      if (!busy && channel != null) {
+        writeNext();
+      }
+    }
+
+    // the file is slower than the client, the upload waits for it instead of buffering the socket in memory
+    private void awaitWrites() {
+      while (!closed && queuedBytes > MAX_QUEUED_BYTES / 2) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          close();
+          Upload.this.failed(e);
+        }
+      }
+    }
+
+    private void writeNext() {
+      final var buffer = queue.peek();
+      if (buffer == null) {
+        busy = false;
+        if (last) {
+          close();
+          LOGGER.info(name + " saved to " + file + ", " + position + " bytes");
+          written();
+        }
+        return;
+      }
+      busy = true;
+      data = buffer.toByteBuffer();
+      channel.write(data, position, buffer, this);
+    }
+
+    private synchronized void close() {
+      closed = true;
+      if (!busy) {
+        dispose();
+      }
+      if (channel == null) {
+        return;
+      }
+      try {
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+
+    private void dispose() {
+      for (Buffer buffer : queue) {
+        buffer.tryDispose();
+      }
+      queue.clear();
+      queuedBytes = 0;
+      notifyAll();
+    }
+  }
+
+  private static void delete(Path file, AsynchronousFileChannel channel) {
+    try {
+      channel.close();
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
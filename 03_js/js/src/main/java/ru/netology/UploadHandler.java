@@ -0,0 +1,53 @@
+package ru.netology;
+
+import org.glassfish.grizzly.http.multipart.MultipartScanner;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// multipart/form-data bodies are saved entry by entry into the directory, other requests just get "ok"
+// the request is suspended while uploading, so no thread waits for the client, and a grizzly thread waits
+// for the disk only when it is slower than the client
+public class UploadHandler extends HttpHandler {
+  private static final long UPLOAD_TIMEOUT_SECONDS = 60;
+  // files of all uploads are opened and written by these threads
+  private static final int FILE_THREADS = 4;
+
+  private final Path directory;
+  private final long maxUploadSize;
+  private final int maxParts;
+  private final ExecutorService executor = Executors.newFixedThreadPool(FILE_THREADS, runnable -> {
+    final var thread = new Thread(runnable, "upload-file");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public UploadHandler(Path directory, long maxUploadSize, int maxParts) {
+    this.directory = directory;
+    this.maxUploadSize = maxUploadSize;
+    this.maxParts = maxParts;
+  }
+
+  @Override
+  public void service(Request request, Response response) throws Exception {
+    final var contentType = request.getContentType();
+    if (contentType == null || !contentType.toLowerCase().startsWith("multipart/form-data")) {
+      response.getWriter().write("ok");
+      return;
+    }
+    // declared length is checked before reading anything, chunked bodies are counted while reading
+    if (request.getContentLengthLong() > maxUploadSize) {
+      Upload.reject(response, 413);
+      return;
+    }
+
+    final var upload = new Upload(response, executor, directory, maxUploadSize, maxParts);
+    response.suspend(UPLOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, null, upload::timeout);
+    MultipartScanner.scan(request, upload, upload);
+  }
+}
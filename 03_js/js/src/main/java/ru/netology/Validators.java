@@ -0,0 +1,103 @@
+package ru.netology;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+// strong ETag and Last-Modified of one file version
+class Validators {
+  // IMF-fixdate, RFC_1123_DATE_TIME doesn't pad day of month
+  private static final DateTimeFormatter HTTP_DATE =
+      DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+  // first 16 bytes of SHA-256 are enough to tell versions apart
+  private static final int TAG_BYTES = 16;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final String etag;
+  private final String lastModified;
+  private final long lastModifiedSeconds;
+
+  private Validators(String etag, Instant lastModified) {
+    this.etag = etag;
+    this.lastModified = HTTP_DATE.format(lastModified);
+    this.lastModifiedSeconds = lastModified.getEpochSecond();
+  }
+
+  static Validators of(byte[] content, Instant lastModified) {
+    return new Validators(tag(digest().digest(content)), lastModified.truncatedTo(ChronoUnit.SECONDS));
+  }
+
+  // variant with other content coding must have its own strong tag
+  Validators forEncoding(String encoding) {
+    return new Validators(etag.substring(0, etag.length() - 1) + "-" + encoding + "\"",
+        Instant.ofEpochSecond(lastModifiedSeconds));
+  }
+
+  String etag() {
+    return etag;
+  }
+
+  String lastModified() {
+    return lastModified;
+  }
+
+  // If-None-Match wins over If-Modified-Since when both are sent
+  boolean notModified(String ifNoneMatch, String ifModifiedSince) {
+    if (ifNoneMatch != null) {
+      return matches(ifNoneMatch);
+    }
+    if (ifModifiedSince == null) {
+      return false;
+    }
+    try {
+      final var since = ZonedDateTime.parse(ifModifiedSince.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+      return lastModifiedSeconds <= since.toEpochSecond();
+    } catch (DateTimeParseException e) {
+      // invalid date is ignored
+      return false;
+    }
+  }
+
+  // weak comparison, as required for If-None-Match
+  private boolean matches(String ifNoneMatch) {
+    for (String tag : ifNoneMatch.split(",")) {
+      var candidate = tag.trim();
+      if (candidate.equals("*")) {
+        return true;
+      }
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String tag(byte[] hash) {
+    final var tag = new char[TAG_BYTES * 2 + 2];
+    tag[0] = '"';
+    for (int i = 0; i < TAG_BYTES; i++) {
+      tag[1 + i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+      tag[2 + i * 2] = HEX_DIGITS[hash[i] & 0xf];
+    }
+    tag[tag.length - 1] = '"';
+    return new String(tag);
+  }
+
+  private static MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every JDK has SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package ru.netology.controller;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import org.springframework.stereotype.Controller;
 import ru.netology.model.Post;
 import ru.netology.service.PostService;
@@ -13,15 +14,46 @@ import java.util.List;
 @Controller
 public class PostController {
     public static final String APPLICATION_JSON = "application/json";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final PostService service;
 
     public PostController(PostService service) {
         this.service = service;
     }
 
-    public void all(HttpServletResponse response) throws IOException {
-        final ResponseHandler<List<Post>> handler = service::all;
-        makeResponse(handler, response);
+    // with limit one keyset page is returned and X-Next-Cursor points to the next one,
+    // without it all posts after the cursor are streamed, read from the service page by page
+    public void all(String limit, String cursor, HttpServletResponse response) throws IOException {
+        final int pageSize;
+        final long after;
+        try {
+            pageSize = limit == null ? PostService.MAX_PAGE_SIZE : Integer.parseInt(limit);
+            after = cursor == null ? 0L : Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        if (pageSize < 1 || after < 0) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        var page = service.page(after, pageSize);
+        response.setContentType(APPLICATION_JSON);
+        if (limit != null && !page.isEmpty()) {
+            response.setHeader(NEXT_CURSOR_HEADER, String.valueOf(lastId(page)));
+        }
+        final var gson = new Gson();
+        // posts are written one by one, the container sends the buffer every time it fills up
+        final var writer = new JsonWriter(response.getWriter());
+        writer.beginArray();
+        writePosts(page, writer, gson);
+        while (limit == null && !page.isEmpty()) {
+            page = service.page(lastId(page), pageSize);
+            writePosts(page, writer, gson);
+        }
+        writer.endArray();
+        writer.flush();
     }
 
     public void getById(long id, HttpServletResponse response) throws IOException {
@@ -48,6 +80,16 @@ public class PostController {
         response.getWriter().print(gson.toJson(data));
     }
 
+    private static void writePosts(List<Post> posts, JsonWriter writer, Gson gson) {
+        for (Post post : posts) {
+            gson.toJson(post, Post.class, writer);
+        }
+    }
+
+    private static long lastId(List<Post> posts) {
+        return posts.get(posts.size() - 1).getId();
+    }
+
     @FunctionalInterface
     interface ResponseHandler<T> {
         T makeResponseData();
@@ -4,39 +4,68 @@ import org.springframework.stereotype.Repository;
 import ru.netology.exception.NotFoundException;
 import ru.netology.model.Post;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Repository
 public class PostRepository {
-    private final List<Post> posts = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<Long, Post> posts = new ConcurrentHashMap<>();
+    // same posts ordered by id, i.e. in creation order, changed only inside posts.compute for the same key
+    private final ConcurrentNavigableMap<Long, Post> index = new ConcurrentSkipListMap<>();
     private final AtomicLong nextPostId = new AtomicLong(1L);
 
     public List<Post> all() {
-        return posts;
+        return new ArrayList<>(index.values());
+    }
+
+    // keyset page: up to limit posts with ids greater than cursor, a skip list finds the start without a scan
+    public List<Post> page(long cursor, int limit) {
+        final List<Post> page = new ArrayList<>();
+        for (Post post : index.tailMap(cursor, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(post);
+        }
+        return page;
     }
 
     public Optional<Post> getById(long id) {
-        return posts.stream()
-                .filter(post -> post.getId() == id)
-                .findFirst();
+        return Optional.ofNullable(posts.get(id));
     }
 
     public Post save(Post post) {
         if (post.getId() == 0L) {
-            post.setId(nextPostId.getAndIncrement());
-            posts.add(post);
-            return post;
-        } else {
-            final Post oldPost = getById(post.getId()).orElseThrow(NotFoundException::new);
-            oldPost.setContent(post.getContent());
-            return oldPost;
+            final long id = nextPostId.getAndIncrement();
+            final Post created = new Post(id, post.getContent());
+            posts.compute(id, (key, absent) -> {
+                index.put(key, created);
+                return created;
+            });
+            return created;
+        }
+        // stored posts are replaced, not changed, so readers never see a half-updated post
+        final Post updated = posts.computeIfPresent(post.getId(), (key, oldPost) -> {
+            final Post newPost = new Post(key, post.getContent());
+            index.put(key, newPost);
+            return newPost;
+        });
+        if (updated == null) {
+            throw new NotFoundException();
         }
+        return updated;
     }
 
     public void removeById(long id) {
-        posts.removeIf(post -> post.getId() == id);
+        posts.computeIfPresent(id, (key, oldPost) -> {
+            index.remove(key);
+            return null;
+        });
     }
 }
@@ -27,7 +27,7 @@ public class MainServlet extends HttpServlet {
             final var method = req.getMethod();
             // primitive routing
             if (method.equals(GET_METHOD) && path.equals("/api/posts")) {
-                controller.all(resp);
+                controller.all(req.getParameter("limit"), req.getParameter("cursor"), resp);
                 return;
             }
             if (method.equals(GET_METHOD) && path.matches("/api/posts/\\d+")) {
@@ -8,6 +8,9 @@ import java.util.Optional;
 public interface PostRepository {
   List<Post> all();
 
+  // up to limit posts with ids greater than cursor, ordered by id
+  List<Post> page(long cursor, int limit);
+
   Optional<Post> getById(long id);
 
   Post save(Post post);
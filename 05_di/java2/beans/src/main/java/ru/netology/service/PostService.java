@@ -7,6 +7,7 @@ import ru.netology.repository.PostRepository;
 import java.util.List;
 
 public class PostService {
+  public static final int MAX_PAGE_SIZE = 100;
   // сервис завязан на интерфейс, а не на конкретную реализацию
   private final PostRepository repository;
 
@@ -18,6 +19,11 @@ public class PostService {
     return repository.all();
   }
 
+  // cursor is the id of the last post of the previous page, 0 for the first page
+  public List<Post> page(long cursor, int limit) {
+    return repository.page(cursor, Math.min(limit, MAX_PAGE_SIZE));
+  }
+
   public Post getById(long id) {
     return repository.getById(id).orElseThrow(NotFoundException::new);
   }
@@ -12,6 +12,10 @@ public class PostRepository {
     return Collections.emptyList();
   }
 
+  public List<Post> page(long cursor, int limit) {
+    return Collections.emptyList();
+  }
+
   public Optional<Post> getById(long id) {
     return Optional.empty();
   }
@@ -9,6 +9,7 @@ import java.util.List;
 
 @Service
 public class PostService {
+  public static final int MAX_PAGE_SIZE = 100;
   // сервис завязан на интерфейс, а не на конкретную реализацию
   private final PostRepository repository;
 
@@ -20,6 +21,11 @@ public class PostService {
     return repository.all();
   }
 
+  // cursor is the id of the last post of the previous page, 0 for the first page
+  public List<Post> page(long cursor, int limit) {
+    return repository.page(cursor, Math.min(limit, MAX_PAGE_SIZE));
+  }
+
   public Post getById(long id) {
     return repository.getById(id).orElseThrow(NotFoundException::new);
   }
@@ -1,23 +1,57 @@
 package ru.netology.controller;
 
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import ru.netology.model.Post;
 import ru.netology.service.PostService;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/posts")
 public class PostController {
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
   private final PostService service;
 
   public PostController(PostService service) {
     this.service = service;
   }
 
+  // with limit one keyset page is returned and X-Next-Cursor points to the next one,
+  // without it all posts after the cursor are streamed, read from the service page by page,
+  // so the whole list is never built for the message converter
   @GetMapping
-  public List<Post> all() {
-    return service.all();
+  public void all(@RequestParam(required = false) Integer limit, @RequestParam(defaultValue = "0") long cursor,
+                  HttpServletResponse response) throws IOException {
+    final int pageSize = limit == null ? PostService.MAX_PAGE_SIZE : limit;
+    if (pageSize < 1 || cursor < 0) {
+      response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    var page = service.page(cursor, pageSize);
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    // the converter used to write UTF-8, the servlet writer defaults to ISO-8859-1
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    if (limit != null && !page.isEmpty()) {
+      response.setHeader(NEXT_CURSOR_HEADER, String.valueOf(lastId(page)));
+    }
+    final var gson = new Gson();
+    // posts are written one by one, the container sends the buffer every time it fills up
+    final var writer = new JsonWriter(response.getWriter());
+    writer.beginArray();
+    writePosts(page, writer, gson);
+    while (limit == null && !page.isEmpty()) {
+      page = service.page(lastId(page), pageSize);
+      writePosts(page, writer, gson);
+    }
+    writer.endArray();
+    writer.flush();
   }
 
   @GetMapping("/{id}")
@@ -34,4 +68,14 @@ public class PostController {
   public void removeById(long id) {
     service.removeById(id);
   }
+
+  private static void writePosts(List<Post> posts, JsonWriter writer, Gson gson) {
+    for (Post post : posts) {
+      gson.toJson(post, Post.class, writer);
+    }
+  }
+
+  private static long lastId(List<Post> posts) {
+    return posts.get(posts.size() - 1).getId();
+  }
 }
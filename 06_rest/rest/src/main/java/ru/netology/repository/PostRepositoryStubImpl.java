@@ -13,6 +13,10 @@ public class PostRepositoryStubImpl implements PostRepository {
     return Collections.emptyList();
   }
 
+  public List<Post> page(long cursor, int limit) {
+    return Collections.emptyList();
+  }
+
   public Optional<Post> getById(long id) {
     return Optional.empty();
   }
@@ -0,0 +1,145 @@
+package ru.netology;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.netology.http.RequestParser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// forms request reading: the original indexOf + extractHeader code of Main against RequestParser
+// both read from a stream the way Main does, 4096 bytes limit for request line and headers
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormsParsingBenchmark {
+    private static final int LIMIT = 4096;
+
+    @Param({"4", "16", "64"})
+    private int headers;
+
+    @Param({"0", "1024", "65536"})
+    private int bodySize;
+
+    private byte[] request;
+
+    @Setup
+    public void setUp() {
+        request = Requests.post(headers, bodySize);
+    }
+
+    @Benchmark
+    public void baselineIndexOf(Blackhole blackhole) throws IOException {
+        final BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(request));
+        in.mark(LIMIT);
+        final byte[] buffer = new byte[LIMIT];
+        final int read = in.read(buffer);
+
+        final byte[] requestLineDelimiter = new byte[]{'\r', '\n'};
+        final int requestLineEnd = indexOf(buffer, requestLineDelimiter, 0, read);
+        final String[] requestLine = new String(Arrays.copyOf(buffer, requestLineEnd)).split(" ");
+        blackhole.consume(requestLine[0]);
+        blackhole.consume(requestLine[1]);
+
+        final byte[] headersDelimiter = new byte[]{'\r', '\n', '\r', '\n'};
+        final int headersStart = requestLineEnd + requestLineDelimiter.length;
+        final int headersEnd = indexOf(buffer, headersDelimiter, headersStart, read);
+
+        in.reset();
+        in.skip(headersStart);
+        final byte[] headersBytes = in.readNBytes(headersEnd - headersStart);
+        final List<String> headers = Arrays.asList(new String(headersBytes).split("\r\n"));
+        blackhole.consume(headers);
+
+        in.skip(headersDelimiter.length);
+        final Optional<String> contentLength = extractHeader(headers, "Content-Length");
+        if (contentLength.isPresent()) {
+            final int length = Integer.parseInt(contentLength.get());
+            blackhole.consume(new String(in.readNBytes(length)));
+        }
+    }
+
+    // as Main reads requests now, body is skipped
+    @Benchmark
+    public void requestParser(Blackhole blackhole) throws IOException {
+        final InputStream in = new BufferedInputStream(new ByteArrayInputStream(request));
+        final ByteBuffer buffer = ByteBuffer.allocate(LIMIT);
+        final RequestParser parser = new RequestParser();
+
+        RequestParser.Result result = parser.parse(buffer);
+        while (result == RequestParser.Result.INCOMPLETE && buffer.hasRemaining()) {
+            final int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+            if (read == -1) {
+                break;
+            }
+            buffer.position(buffer.position() + read);
+            result = parser.parse(buffer);
+        }
+        blackhole.consume(result);
+        blackhole.consume(parser.method());
+
+        final long buffered = Math.min(buffer.position() - parser.headEnd(), parser.contentLength());
+        long remaining = parser.contentLength() - buffered;
+        while (remaining > 0) {
+            final long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                break;
+            }
+            remaining -= skipped;
+        }
+        blackhole.consume(remaining);
+    }
+
+    // headers are looked up by name in the parsed offsets, without building strings for the others
+    @Benchmark
+    public void requestParserHeaderLookup(Blackhole blackhole) {
+        final ByteBuffer buffer = ByteBuffer.wrap(request, 0, Math.min(request.length, LIMIT));
+        buffer.position(buffer.limit());
+        final RequestParser parser = new RequestParser();
+        blackhole.consume(parser.parse(buffer));
+        blackhole.consume(parser.header(request, "Content-Type"));
+        blackhole.consume(parser.contentLength());
+    }
+
+    private static Optional<String> extractHeader(List<String> headers, String header) {
+        return headers.stream()
+                .filter(o -> o.startsWith(header))
+                .map(o -> o.substring(o.indexOf(" ")))
+                .map(String::trim)
+                .findFirst();
+    }
+
+    // from google guava with modifications
+    private static int indexOf(byte[] array, byte[] target, int start, int max) {
+        outer:
+        for (int i = start; i < max - target.length + 1; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (array[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,136 @@
+package ru.netology;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.netology.http.RequestParser;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+// http-server request reading: the original Server.getRequest against RequestParser over the connection buffer
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+    @Param({"4", "16", "64"})
+    private int headers;
+
+    @Param({"0", "1024", "65536"})
+    private int bodySize;
+
+    private byte[] request;
+    private final RequestBuffer in = new RequestBuffer(Server.READ_BUFFER_SIZE, Server.MAX_REQUEST_SIZE);
+    private final RequestParser parser = new RequestParser();
+    private final RouteMatch routeMatch = new RouteMatch();
+    private final byte[] drain = new byte[Server.READ_BUFFER_SIZE];
+
+    @Setup
+    public void setUp() {
+        request = Requests.post(headers, bodySize);
+        // the request stays in the buffer, as if it was read from the socket
+        in.ensureCapacity(request.length);
+        in.buffer().put(request);
+    }
+
+    @Benchmark
+    public void baselineGetRequest(Blackhole blackhole) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(request)));
+        blackhole.consume(getRequest(reader));
+    }
+
+    @Benchmark
+    public void parseHead(Blackhole blackhole) {
+        parser.reset();
+        blackhole.consume(parser.parse(in.buffer()));
+        final Request request = newRequest();
+        blackhole.consume(request.getPath());
+        blackhole.consume(request.getHeader("Content-Length"));
+    }
+
+    @Benchmark
+    public void parseWithBody(Blackhole blackhole) throws IOException {
+        parser.reset();
+        blackhole.consume(parser.parse(in.buffer()));
+        final Request request = newRequest();
+        blackhole.consume(request.getPath());
+        blackhole.consume(request.getHeader("Content-Length"));
+        blackhole.consume(request.getBody());
+    }
+
+    // body is read in chunks, as handlers streaming it do
+    @Benchmark
+    public void parseWithBodyStream(Blackhole blackhole) throws IOException {
+        parser.reset();
+        blackhole.consume(parser.parse(in.buffer()));
+        final Request request = newRequest();
+        blackhole.consume(request.getPath());
+        blackhole.consume(request.getHeader("Content-Length"));
+        final InputStream body = request.getBodyStream();
+        long total = 0;
+        int read;
+        while ((read = body.read(drain)) != -1) {
+            total += read;
+        }
+        blackhole.consume(total);
+    }
+
+    private Request newRequest() {
+        final RequestBuffer.BodySource source = in.bodySource(parser.headEnd(), null);
+        return new Request(in.buffer().array(), parser, routeMatch, Server.bodyStream(parser, source),
+                parser.isKeepAlive());
+    }
+
+    // Server.getRequest as it was before RequestParser, returns method, path, headers and body
+    private static String[] getRequest(BufferedReader in) throws IOException {
+        final String requestLine = in.readLine();
+        final String[] parts = requestLine.split(" ");
+        if (parts.length != 3) {
+            return null;
+        }
+
+        final StringBuilder headers = new StringBuilder();
+        final StringBuilder body = new StringBuilder();
+        boolean hasBody = false;
+
+        String inputLine = in.readLine();
+        while (inputLine.length() > 0) {
+            headers.append(inputLine);
+            if (inputLine.startsWith("Content-Length: ")) {
+                int index = inputLine.indexOf(':') + 1;
+                String len = inputLine.substring(index).trim();
+                if (Integer.parseInt(len) > 0) {
+                    hasBody = true;
+                }
+            }
+            inputLine = in.readLine();
+        }
+
+        if (hasBody) {
+            inputLine = in.readLine();
+            while (inputLine != null && inputLine.length() > 0) {
+                body.append(inputLine);
+                inputLine = in.readLine();
+            }
+        }
+
+        final String path = parts[1].contains("?") ? parts[1].substring(0, parts[1].indexOf("?")) : parts[1];
+        return new String[]{parts[0], path, headers.toString(), body.toString()};
+    }
+}
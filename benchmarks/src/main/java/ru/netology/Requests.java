@@ -0,0 +1,29 @@
+package ru.netology;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// sample requests for parsing benchmarks
+final class Requests {
+    private Requests() {
+    }
+
+    // POST with headersCount headers (Content-Length included) and a body of bodySize ASCII bytes
+    // body has no line breaks, the original parser read it with readLine
+    static byte[] post(int headersCount, int bodySize) {
+        final StringBuilder head = new StringBuilder()
+                .append("POST /messages?last=10 HTTP/1.1\r\n")
+                .append("Host: localhost:9999\r\n")
+                .append("Content-Type: text/plain\r\n")
+                .append("Content-Length: ").append(bodySize).append("\r\n");
+        for (int i = 3; i < headersCount; i++) {
+            head.append("X-Header-").append(i).append(": value-").append(i).append("\r\n");
+        }
+        head.append("\r\n");
+
+        final byte[] headBytes = head.toString().getBytes(StandardCharsets.US_ASCII);
+        final byte[] request = Arrays.copyOf(headBytes, headBytes.length + bodySize);
+        Arrays.fill(request, headBytes.length, request.length, (byte) 'a');
+        return request;
+    }
+}
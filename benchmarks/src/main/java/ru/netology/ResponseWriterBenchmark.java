@@ -0,0 +1,130 @@
+package ru.netology;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+// status line and headers: the original Server.writeStatusAndHeaders against ResponseWriter
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseWriterBenchmark {
+    private static final String CONTENT_TYPE = "text/html";
+    private static final long CONTENT_LENGTH = 2048;
+
+    @Param({"0", "4", "16"})
+    private int extraHeaders;
+
+    private String[] names;
+    private String[] values;
+    private final BufferedOutputStream baselineOut = new BufferedOutputStream(OutputStream.nullOutputStream());
+    private final ResponseStream out = new NullResponseStream(Server.BUFFER_POOL);
+
+    @Setup
+    public void setUp() {
+        names = new String[extraHeaders];
+        values = new String[extraHeaders];
+        for (int i = 0; i < extraHeaders; i++) {
+            names[i] = "X-Header-" + i;
+            values[i] = "value-" + i;
+        }
+    }
+
+    @Benchmark
+    public void baselineWriteStatusAndHeaders() throws IOException {
+        writeStatusAndHeaders(200, "OK", CONTENT_TYPE, CONTENT_LENGTH, baselineOut);
+        baselineOut.flush();
+    }
+
+    @Benchmark
+    public void writer() throws IOException {
+        final ResponseWriter writer = out.writer()
+                .status(200, "OK")
+                .contentType(CONTENT_TYPE)
+                .contentLength(CONTENT_LENGTH);
+        for (int i = 0; i < extraHeaders; i++) {
+            writer.header(names[i], values[i]);
+        }
+        writer.connection(false).endHeaders();
+        out.flush();
+    }
+
+    // status line is not pre-encoded
+    @Benchmark
+    public void writerCustomStatus() throws IOException {
+        final ResponseWriter writer = out.writer()
+                .status(201, "Created")
+                .contentType(CONTENT_TYPE)
+                .contentLength(CONTENT_LENGTH);
+        for (int i = 0; i < extraHeaders; i++) {
+            writer.header(names[i], values[i]);
+        }
+        writer.connection(false).endHeaders();
+        out.flush();
+    }
+
+    // Server.writeStatusAndHeaders as it was before ResponseWriter, with extra headers appended the same way
+    private void writeStatusAndHeaders(int code, String description, String contentType, long contentLength,
+                                       BufferedOutputStream out) throws IOException {
+        final StringBuilder respBuilder = new StringBuilder();
+        respBuilder.append("HTTP/1.1 ").append(code).append(" ").append(description).append("\r\n");
+        if (contentType != null) {
+            respBuilder.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        for (int i = 0; i < extraHeaders; i++) {
+            respBuilder.append(names[i]).append(": ").append(values[i]).append("\r\n");
+        }
+        respBuilder.append("Content-Length: ").append(contentLength).append("\r\n");
+        respBuilder.append("Connection: close\r\n");
+        respBuilder.append("\r\n");
+
+        out.write(respBuilder.toString().getBytes());
+    }
+
+    // drops everything, header buffers go straight back to the pool
+    private static class NullResponseStream extends ResponseStream {
+        private NullResponseStream(BufferPool pool) {
+            super(OutputStream.nullOutputStream(), pool);
+        }
+
+        @Override
+        public void writeBuffers(ByteBuffer... buffers) {
+            for (ByteBuffer buffer : buffers) {
+                buffer.position(buffer.limit());
+            }
+        }
+
+        @Override
+        public void transferFrom(FileChannel file, long position, long count) throws IOException {
+            file.close();
+        }
+
+        @Override
+        void writePooled(ByteBuffer buffer, BufferPool pool) {
+            pool.release(buffer);
+        }
+
+        @Override
+        long takeWrittenBytes() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ru.netology;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// handler dispatch: the original handlerMap keyed by "METHOD path" against Router over path bytes
+// every operation looks up a hit at the start, in the middle and at the end of the table and a miss
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+    private static final Handler HANDLER = (request, out) -> {
+    };
+
+    @Param({"8", "64"})
+    private int routes;
+
+    // not a constant, so the key is concatenated per lookup as it was
+    private String method = "GET";
+    private final Map<String, Handler> handlerMap = new ConcurrentHashMap<>();
+    private final Router router = new Router();
+    private final RouteMatch match = new RouteMatch();
+    private String[] paths;
+    private byte[][] pathBytes;
+
+    @Setup
+    public void setUp() {
+        final Metrics metrics = new Metrics();
+        for (int i = 0; i < routes; i++) {
+            final String path = "/api/resources" + i + "/items";
+            handlerMap.put("GET " + path, HANDLER);
+            router.add("GET", path, HANDLER, metrics.route(path));
+        }
+        paths = new String[]{
+                "/api/resources0/items",
+                "/api/resources" + routes / 2 + "/items",
+                "/api/resources" + (routes - 1) + "/items",
+                "/api/missing/items"
+        };
+        pathBytes = new byte[paths.length][];
+        for (int i = 0; i < paths.length; i++) {
+            pathBytes[i] = paths[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    // path is already a String, as it was after Server.getRequest
+    @Benchmark
+    public int baselineHandlerMap() {
+        int found = 0;
+        for (String path : paths) {
+            if (handlerMap.get(method + " " + path) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int router() {
+        int found = 0;
+        for (byte[] path : pathBytes) {
+            if (router.route(method, path, 0, path.length, match)) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
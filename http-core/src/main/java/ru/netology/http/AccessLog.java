@@ -0,0 +1,236 @@
+package ru.netology.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// request threads put fixed size records into a bounded lock-free ring, one background thread writes them to file
+// records are dropped and counted when the ring is full, logging never blocks a request
+public class AccessLog implements Runnable {
+    // longer targets are truncated
+    private static final int MAX_TARGET_LENGTH = 256;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+
+    // slots are stored column-wise, a slot is ready for reading when its sequence is one ahead of its position
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] times;
+    private final String[] methods;
+    private final byte[][] targets;
+    private final int[] targetLengths;
+    private final int[] statuses;
+    private final long[] responseBytes;
+    private final long[] durations;
+    private final AtomicLong tail = new AtomicLong();
+    // read by the writer thread only
+    private long head;
+
+    private final LongAdder dropped = new LongAdder();
+    private long reportedDropped;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final StringBuilder line = new StringBuilder();
+    private FileChannel channel;
+    private long fileSize;
+
+    // capacity is rounded up to a power of two
+    public AccessLog(Path file, int capacity, long maxFileBytes, int maxFiles) {
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        final int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        times = new long[size];
+        methods = new String[size];
+        targets = new byte[size][MAX_TARGET_LENGTH];
+        targetLengths = new int[size];
+        statuses = new int[size];
+        responseBytes = new long[size];
+        durations = new long[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public void start() {
+        final Thread thread = new Thread(this, "access-log");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    // target is array[targetStart, targetEnd), it is copied, so the array may be reused right after the call
+    public void log(String method, byte[] array, int targetStart, int targetEnd, int status,
+                    long bytes, long startedNanos) {
+        final long durationMicros = (System.nanoTime() - startedNanos) / 1_000;
+        long position = tail.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // writer is behind by the whole ring
+                dropped.increment();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+
+        final int index = (int) position & mask;
+        final int length = Math.min(targetEnd - targetStart, MAX_TARGET_LENGTH);
+        times[index] = System.currentTimeMillis();
+        methods[index] = method;
+        System.arraycopy(array, targetStart, targets[index], 0, length);
+        targetLengths[index] = length;
+        statuses[index] = status;
+        responseBytes[index] = bytes;
+        durations[index] = durationMicros;
+        // publishes the record to the writer
+        sequences.set(index, position + 1);
+    }
+
+    @SuppressWarnings("InfiniteLoopStatement")
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                if (drain() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                closeFile();
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+    }
+
+    // writes all published records in one batch, returns their count
+    private int drain() throws IOException {
+        if (channel == null) {
+            open();
+        }
+        int count = 0;
+        while (true) {
+            final int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            format(index);
+            methods[index] = null;
+            // frees the slot for the next round
+            sequences.set(index, head + mask + 1);
+            head++;
+            count++;
+            append();
+        }
+
+        final long droppedNow = dropped.sum();
+        if (droppedNow != reportedDropped) {
+            line.setLength(0);
+            line.append(DateTimeFormatter.ISO_INSTANT.format(Instant.now()))
+                    .append(" dropped ").append(droppedNow - reportedDropped).append(" records\n");
+            reportedDropped = droppedNow;
+            append();
+        }
+        if (writeBuffer.position() > 0) {
+            flush();
+        }
+        return count;
+    }
+
+    private void format(int index) {
+        line.setLength(0);
+        line.append(DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(times[index]))).append(' ')
+                .append(methods[index]).append(' ');
+        final byte[] target = targets[index];
+        for (int i = 0; i < targetLengths[index]; i++) {
+            line.append((char) (target[i] & 0xff));
+        }
+        line.append(' ').append(statuses[index])
+                .append(' ').append(responseBytes[index])
+                .append(' ').append(durations[index]).append("us\n");
+    }
+
+    private void append() throws IOException {
+        final byte[] bytes = line.toString().getBytes(StandardCharsets.ISO_8859_1);
+        final long size = fileSize + writeBuffer.position();
+        if (size > 0 && size + bytes.length > maxFileBytes) {
+            flush();
+            rotate();
+        } else if (writeBuffer.remaining() < bytes.length) {
+            flush();
+        }
+        writeBuffer.put(bytes, 0, Math.min(bytes.length, writeBuffer.remaining()));
+    }
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            fileSize += channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    // access.log becomes access.log.1, access.log.1 becomes access.log.2 and so on, the oldest one is removed
+    private void rotate() throws IOException {
+        closeFile();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            final Path source = i == 1 ? file : rotated(i - 1);
+            if (Files.exists(source)) {
+                Files.move(source, rotated(i), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        open();
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void open() throws IOException {
+        final Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    private void closeFile() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,114 @@
+package ru.netology.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+// decodes Transfer-Encoding: chunked, reads from source exactly up to the end of the body
+public class ChunkedInputStream extends InputStream {
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private final InputStream source;
+    private long chunkRemaining;
+    private boolean afterChunk;
+    private boolean finished;
+
+    public ChunkedInputStream(InputStream source) {
+        this.source = source;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        final int b = source.read();
+        if (b == -1) {
+            throw new EOFException("Chunk is not complete");
+        }
+        chunkRemaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        final int read = source.read(b, off, (int) Math.min(len, chunkRemaining));
+        if (read == -1) {
+            throw new EOFException("Chunk is not complete");
+        }
+        chunkRemaining -= read;
+        return read;
+    }
+
+    // returns false when last chunk and trailers are read
+    private boolean nextChunk() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (chunkRemaining > 0) {
+            return true;
+        }
+        if (afterChunk && readLine().length() != 0) {
+            throw new IOException("Chunk data is not followed by CRLF");
+        }
+        chunkRemaining = parseChunkSize(readLine());
+        afterChunk = true;
+        if (chunkRemaining == 0) {
+            // trailers are skipped
+            while (readLine().length() != 0) {
+                // skip trailer
+            }
+            finished = true;
+            return false;
+        }
+        return true;
+    }
+
+    private String readLine() throws IOException {
+        final StringBuilder line = new StringBuilder();
+        while (true) {
+            final int b = source.read();
+            if (b == -1) {
+                throw new EOFException("Chunked body is not complete");
+            }
+            if (b == '\n') {
+                final int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() == MAX_LINE_LENGTH) {
+                throw new IOException("Chunk size line is too long");
+            }
+            line.append((char) b);
+        }
+    }
+
+    // hex digits only, optionally followed by extensions, the same rules as ChunkedScanner,
+    // so both modes find the same end of the body
+    private static long parseChunkSize(String line) throws IOException {
+        int end = line.indexOf(';');
+        if (end == -1) {
+            end = line.length();
+        }
+        if (end == 0) {
+            throw new IOException("Invalid chunk size: " + line);
+        }
+        long size = 0;
+        for (int i = 0; i < end; i++) {
+            final int digit = Character.digit(line.charAt(i), 16);
+            if (digit == -1 || size > Long.MAX_VALUE >> 4) {
+                throw new IOException("Invalid chunk size: " + line);
+            }
+            size = size << 4 | digit;
+        }
+        return size;
+    }
+}
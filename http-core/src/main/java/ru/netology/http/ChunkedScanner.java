@@ -0,0 +1,122 @@
+package ru.netology.http;
+
+import java.io.IOException;
+
+// finds the end of a chunked body while it is still arriving, the state is kept between reads,
+// so every byte is looked at once however many reads the body takes
+public class ChunkedScanner {
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private enum State {
+        SIZE, EXTENSION, DATA, DATA_END, TRAILER, DONE
+    }
+
+    private State state = State.SIZE;
+    // next byte to look at, -1 until the first call for the request
+    private int position = -1;
+    private long chunkRemaining;
+    private boolean sizeStarted;
+    private boolean sizeEnded;
+    private int lineLength;
+    private byte lastByte;
+
+    // returns end of chunked body in array or -1 if it is not fully there yet
+    // start is the same for every call until reset, bytes before limit must not change
+    public int findEnd(byte[] array, int start, int limit) throws IOException {
+        if (position == -1) {
+            position = start;
+        }
+        while (position < limit && state != State.DONE) {
+            if (state == State.DATA) {
+                final int skipped = (int) Math.min(chunkRemaining, limit - position);
+                position += skipped;
+                chunkRemaining -= skipped;
+                if (chunkRemaining == 0) {
+                    state = State.DATA_END;
+                }
+                continue;
+            }
+            final byte b = array[position++];
+            if (b == '\n') {
+                endLine();
+            } else {
+                if (++lineLength > MAX_LINE_LENGTH) {
+                    throw new IOException("Chunk size line is too long");
+                }
+                lineByte(b);
+                lastByte = b;
+            }
+        }
+        return state == State.DONE ? position : -1;
+    }
+
+    // ready for the next request
+    public void reset() {
+        state = State.SIZE;
+        position = -1;
+        chunkRemaining = 0;
+        sizeStarted = false;
+        sizeEnded = false;
+        lineLength = 0;
+    }
+
+    private void lineByte(byte b) throws IOException {
+        switch (state) {
+            case SIZE:
+                sizeByte(b);
+                break;
+            case DATA_END:
+                if (b != '\r' || lineLength > 1) {
+                    throw new IOException("Chunk data is not followed by CRLF");
+                }
+                break;
+            default:
+                // extensions and trailers are skipped
+                break;
+        }
+    }
+
+    // hex digits only, no sign or spaces, CR may only end the line
+    private void sizeByte(byte b) throws IOException {
+        if (b == ';' && sizeStarted && !sizeEnded) {
+            state = State.EXTENSION;
+            return;
+        }
+        if (b == '\r' && !sizeEnded) {
+            sizeEnded = true;
+            return;
+        }
+        final int digit = Character.digit(b, 16);
+        if (digit == -1 || sizeEnded || chunkRemaining > Long.MAX_VALUE >> 4) {
+            throw new IOException("Invalid chunk size");
+        }
+        chunkRemaining = chunkRemaining << 4 | digit;
+        sizeStarted = true;
+    }
+
+    private void endLine() throws IOException {
+        final boolean empty = lineLength == 0 || lineLength == 1 && lastByte == '\r';
+        lineLength = 0;
+        switch (state) {
+            case SIZE:
+            case EXTENSION:
+                if (!sizeStarted) {
+                    throw new IOException("Invalid chunk size");
+                }
+                sizeStarted = false;
+                sizeEnded = false;
+                state = chunkRemaining == 0 ? State.TRAILER : State.DATA;
+                break;
+            case DATA_END:
+                state = State.SIZE;
+                break;
+            case TRAILER:
+                if (empty) {
+                    state = State.DONE;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ru.netology.http;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public enum ExecutorStrategy {
+    FIXED_POOL {
+        @Override
+        public ExecutorService create(int threadsCount, int queueCapacity) {
+            // bounded queue, submit throws RejectedExecutionException when it is full
+            return new ThreadPoolExecutor(threadsCount, threadsCount, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity));
+        }
+    },
+    VIRTUAL_THREADS {
+        @Override
+        public ExecutorService create(int threadsCount, int queueCapacity) {
+            // nothing is queued, open connections are capped by the semaphore in Server
+            // looked up reflectively, so the same sources still compile for Java 11
+            try {
+                final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.out.println("Virtual threads are not available, falling back to fixed thread pool");
+                return FIXED_POOL.create(threadsCount, queueCapacity);
+            }
+        }
+    };
+
+    public abstract ExecutorService create(int threadsCount, int queueCapacity);
+}
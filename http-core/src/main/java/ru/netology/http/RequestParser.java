@@ -0,0 +1,324 @@
+package ru.netology.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// incremental parser of request line and headers, keeps only offsets into the buffer
+// parsing resumes from the last scanned byte when more data is read into the same buffer
+public class RequestParser {
+    public enum Result {
+        INCOMPLETE, COMPLETE, INVALID
+    }
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH"};
+    private static final byte[][] METHOD_BYTES = new byte[METHODS.length][];
+    private static final String[] HEADER_NAMES = {
+            "Host", "Connection", "Content-Length", "Content-Type", "Transfer-Encoding",
+            "Accept", "Accept-Encoding", "Accept-Language", "User-Agent", "Cookie", "Referer", "Origin",
+            "Cache-Control", "If-None-Match", "If-Modified-Since", "Range", "If-Range"
+    };
+    private static final byte[] HTTP_1_1 = "HTTP/1.1".getBytes(StandardCharsets.US_ASCII);
+    // name start, name end, value start, value end
+    private static final int HEADER_FIELDS = 4;
+
+    static {
+        for (int i = 0; i < METHODS.length; i++) {
+            METHOD_BYTES[i] = METHODS[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private int lineStart;
+    private int scanned;
+    private boolean requestLineParsed;
+    private boolean complete;
+
+    private String method;
+    private int targetStart;
+    private int targetEnd;
+    private int pathEnd;
+    private boolean http11;
+
+    private int[] headers = new int[HEADER_FIELDS * 16];
+    private int headersCount;
+    private int headersStart;
+    private int headersEnd;
+    private int headEnd;
+
+    private long contentLength;
+    private boolean chunked;
+    private boolean keepAlive;
+
+    public Result parse(ByteBuffer buffer) {
+        if (complete) {
+            return Result.COMPLETE;
+        }
+        final byte[] array = buffer.array();
+        final int limit = buffer.position();
+        while (scanned < limit) {
+            if (array[scanned] != '\n') {
+                scanned++;
+                continue;
+            }
+            final int start = lineStart;
+            final int end = scanned > start && array[scanned - 1] == '\r' ? scanned - 1 : scanned;
+            scanned++;
+            lineStart = scanned;
+
+            if (!requestLineParsed) {
+                if (end == start) {
+                    // empty lines before request line are ignored
+                    continue;
+                }
+                if (!parseRequestLine(array, start, end)) {
+                    return Result.INVALID;
+                }
+                requestLineParsed = true;
+                headersStart = lineStart;
+                headersEnd = lineStart;
+                continue;
+            }
+            if (end == start) {
+                headEnd = scanned;
+                complete = true;
+                return Result.COMPLETE;
+            }
+            if (!parseHeader(array, start, end)) {
+                return Result.INVALID;
+            }
+            headersEnd = end;
+        }
+        return Result.INCOMPLETE;
+    }
+
+    public void reset() {
+        lineStart = 0;
+        scanned = 0;
+        requestLineParsed = false;
+        complete = false;
+        method = null;
+        headersCount = 0;
+        contentLength = 0;
+        chunked = false;
+        keepAlive = false;
+    }
+
+    public String method() {
+        return method;
+    }
+
+    public int targetStart() {
+        return targetStart;
+    }
+
+    public int targetEnd() {
+        return targetEnd;
+    }
+
+    // end of path part of the target, i.e. position of '?' or target end
+    public int pathEnd() {
+        return pathEnd;
+    }
+
+    public boolean isHttp11() {
+        return http11;
+    }
+
+    public int headersStart() {
+        return headersStart;
+    }
+
+    // end of the last header line without line break
+    public int headersEnd() {
+        return headersEnd;
+    }
+
+    // length of request line, headers and empty line
+    public int headEnd() {
+        return headEnd;
+    }
+
+    public int headersCount() {
+        return headersCount;
+    }
+
+    public String headerName(byte[] array, int index) {
+        final int start = headers[index * HEADER_FIELDS];
+        final int end = headers[index * HEADER_FIELDS + 1];
+        for (String name : HEADER_NAMES) {
+            if (equalsIgnoreCase(array, start, end, name)) {
+                return name;
+            }
+        }
+        return new String(array, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    public String headerValue(byte[] array, int index) {
+        final int start = headers[index * HEADER_FIELDS + 2];
+        final int end = headers[index * HEADER_FIELDS + 3];
+        return new String(array, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    public int headerIndex(byte[] array, String name) {
+        for (int i = 0; i < headersCount; i++) {
+            if (equalsIgnoreCase(array, headers[i * HEADER_FIELDS], headers[i * HEADER_FIELDS + 1], name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String header(byte[] array, String name) {
+        final int index = headerIndex(array, name);
+        return index == -1 ? null : headerValue(array, index);
+    }
+
+    public long contentLength() {
+        return contentLength;
+    }
+
+    // Transfer-Encoding: chunked, Content-Length must be ignored then
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    // HTTP/1.1 connections are persistent by default, HTTP/1.0 ones only on request
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    private boolean parseRequestLine(byte[] array, int start, int end) {
+        // must be in form GET /path HTTP/1.1
+        final int methodEnd = indexOf(array, (byte) ' ', start, end);
+        if (methodEnd <= start) {
+            return false;
+        }
+        final int versionStart = indexOf(array, (byte) ' ', methodEnd + 1, end) + 1;
+        if (versionStart <= methodEnd + 2 || versionStart == end
+                || indexOf(array, (byte) ' ', versionStart, end) != -1) {
+            return false;
+        }
+
+        method = internMethod(array, start, methodEnd);
+        targetStart = methodEnd + 1;
+        targetEnd = versionStart - 1;
+        final int query = indexOf(array, (byte) '?', targetStart, targetEnd);
+        pathEnd = query == -1 ? targetEnd : query;
+        http11 = equals(array, versionStart, end, HTTP_1_1);
+        keepAlive = http11;
+        return true;
+    }
+
+    private boolean parseHeader(byte[] array, int start, int end) {
+        final int colon = indexOf(array, (byte) ':', start, end);
+        if (colon <= start) {
+            return false;
+        }
+        int valueStart = colon + 1;
+        while (valueStart < end && isWhitespace(array[valueStart])) {
+            valueStart++;
+        }
+        int valueEnd = end;
+        while (valueEnd > valueStart && isWhitespace(array[valueEnd - 1])) {
+            valueEnd--;
+        }
+
+        if (headers.length == headersCount * HEADER_FIELDS) {
+            final int[] bigger = new int[headers.length * 2];
+            System.arraycopy(headers, 0, bigger, 0, headers.length);
+            headers = bigger;
+        }
+        final int offset = headersCount * HEADER_FIELDS;
+        headers[offset] = start;
+        headers[offset + 1] = colon;
+        headers[offset + 2] = valueStart;
+        headers[offset + 3] = valueEnd;
+        headersCount++;
+
+        if (equalsIgnoreCase(array, start, colon, "Content-Length")) {
+            contentLength = parseLength(array, valueStart, valueEnd);
+            return contentLength != -1;
+        }
+        if (equalsIgnoreCase(array, start, colon, "Transfer-Encoding")) {
+            // chunked must be the last applied coding
+            int codingStart = valueEnd;
+            while (codingStart > valueStart && array[codingStart - 1] != ',' && !isWhitespace(array[codingStart - 1])) {
+                codingStart--;
+            }
+            chunked = equalsIgnoreCase(array, codingStart, valueEnd, "chunked");
+            return true;
+        }
+        if (equalsIgnoreCase(array, start, colon, "Connection")) {
+            if (equalsIgnoreCase(array, valueStart, valueEnd, "close")) {
+                keepAlive = false;
+            } else if (equalsIgnoreCase(array, valueStart, valueEnd, "keep-alive")) {
+                keepAlive = true;
+            }
+        }
+        return true;
+    }
+
+    private static String internMethod(byte[] array, int start, int end) {
+        for (int i = 0; i < METHODS.length; i++) {
+            if (equals(array, start, end, METHOD_BYTES[i])) {
+                return METHODS[i];
+            }
+        }
+        return new String(array, start, end - start, StandardCharsets.US_ASCII);
+    }
+
+    private static long parseLength(byte[] array, int start, int end) {
+        if (start == end || end - start > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            if (array[i] < '0' || array[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (array[i] - '0');
+        }
+        return value;
+    }
+
+    private static int indexOf(byte[] array, byte target, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (array[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equals(byte[] array, int start, int end, byte[] target) {
+        if (end - start != target.length) {
+            return false;
+        }
+        for (int i = 0; i < target.length; i++) {
+            if (array[start + i] != target[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // target is expected to be ASCII
+    private static boolean equalsIgnoreCase(byte[] array, int start, int end, String target) {
+        if (end - start != target.length()) {
+            return false;
+        }
+        for (int i = 0; i < target.length(); i++) {
+            if (toLowerCase(array[start + i]) != toLowerCase((byte) target.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+}
@@ -0,0 +1,75 @@
+package ru.netology.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChunkedInputStreamTest {
+    private static final String BODY = "5;name=value\r\nhello\r\n0B\r\n, chunked!!\r\n0\r\nTrailer: x\r\n\r\n";
+    private static final String NEXT = "GET /next HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+    @Test
+    void decodesBodyArrivingOneByteAtATime() throws IOException {
+        final InputStream body = new ChunkedInputStream(new OneByteInputStream(bytes(BODY)));
+        assertArrayEquals(bytes("hello, chunked!!"), readAll(body));
+    }
+
+    @Test
+    void leavesPipelinedRequestUnread() throws IOException {
+        final InputStream source = new ByteArrayInputStream(bytes(BODY + NEXT));
+        final InputStream body = new ChunkedInputStream(source);
+        assertArrayEquals(bytes("hello, chunked!!"), readAll(body));
+        assertEquals(-1, body.read());
+        assertEquals(NEXT, new String(source.readAllBytes(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void rejectsSizeThatIsNotHex() {
+        for (String size : new String[]{"+5", "-5", " 5", "5 ", "0x5", ";", ""}) {
+            final InputStream body = new ChunkedInputStream(new ByteArrayInputStream(bytes(size + "\r\nhello\r\n0\r\n\r\n")));
+            assertThrows(IOException.class, () -> readAll(body), size);
+        }
+    }
+
+    @Test
+    void failsOnTruncatedBody() {
+        final InputStream body = new ChunkedInputStream(new ByteArrayInputStream(bytes("5\r\nhel")));
+        assertThrows(EOFException.class, () -> readAll(body));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[7];
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // socket that hands out a single byte per read
+    private static class OneByteInputStream extends FilterInputStream {
+        OneByteInputStream(byte[] bytes) {
+            super(new ByteArrayInputStream(bytes));
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+}
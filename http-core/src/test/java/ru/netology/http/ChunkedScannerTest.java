@@ -0,0 +1,69 @@
+package ru.netology.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChunkedScannerTest {
+    private static final String BODY = "5;name=value\r\nhello\r\n0B\r\n, chunked!!\r\n0\r\nTrailer: x\r\n\r\n";
+    private static final String NEXT = "GET /next HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+    @Test
+    void findsEndWhenBodyArrivesInOneRead() throws IOException {
+        final byte[] bytes = bytes("HEAD" + BODY + NEXT);
+        assertEquals(4 + BODY.length(), new ChunkedScanner().findEnd(bytes, 4, bytes.length));
+    }
+
+    @Test
+    void findsSameEndWhateverTheReadsAre() throws IOException {
+        final byte[] bytes = bytes(BODY + NEXT);
+        // every split point, each read adds one more part of the same array
+        for (int split = 1; split < BODY.length(); split++) {
+            final ChunkedScanner scanner = new ChunkedScanner();
+            assertEquals(-1, scanner.findEnd(bytes, 0, split), "split at " + split);
+            assertEquals(BODY.length(), scanner.findEnd(bytes, 0, bytes.length), "split at " + split);
+        }
+        // one byte per read
+        final ChunkedScanner scanner = new ChunkedScanner();
+        int end = -1;
+        for (int limit = 1; end == -1; limit++) {
+            end = scanner.findEnd(bytes, 0, limit);
+        }
+        assertEquals(BODY.length(), end);
+    }
+
+    @Test
+    void pipelinedRequestStartsRightAfterBody() throws IOException {
+        final byte[] bytes = bytes(BODY + NEXT + BODY);
+        final ChunkedScanner scanner = new ChunkedScanner();
+        final int end = scanner.findEnd(bytes, 0, bytes.length);
+        assertEquals(NEXT, new String(bytes, end, NEXT.length(), StandardCharsets.US_ASCII));
+
+        // the same scanner is reused for the body of the next request
+        scanner.reset();
+        final int start = end + NEXT.length();
+        assertEquals(bytes.length, scanner.findEnd(bytes, start, bytes.length));
+    }
+
+    @Test
+    void rejectsSizeThatIsNotHex() {
+        for (String size : new String[]{"+5", "-5", " 5", "5 ", "0x5", "5\r5", ";", ""}) {
+            final byte[] bytes = bytes(size + "\r\nhello\r\n0\r\n\r\n");
+            assertThrows(IOException.class, () -> new ChunkedScanner().findEnd(bytes, 0, bytes.length), size);
+        }
+    }
+
+    @Test
+    void rejectsDataWithoutCrlf() {
+        final byte[] bytes = bytes("5\r\nhello!\r\n0\r\n\r\n");
+        assertThrows(IOException.class, () -> new ChunkedScanner().findEnd(bytes, 0, bytes.length));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.netology;
+
+// log-linear buckets like in HdrHistogram, values in microseconds with about 3% relative error
+// recorded by a single worker thread, workers' histograms are added up for the report
+class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    // about 19 hours, bigger values are counted as this one
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKETS = bucket(MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long totalMicros;
+    private long max;
+
+    void record(long micros) {
+        final long value = Math.max(0, Math.min(micros, MAX_VALUE));
+        counts[bucket(value)]++;
+        total++;
+        totalMicros += value;
+        max = Math.max(max, value);
+    }
+
+    void add(Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        totalMicros += other.totalMicros;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return total;
+    }
+
+    long max() {
+        return max;
+    }
+
+    double mean() {
+        return total == 0 ? 0 : (double) totalMicros / total;
+    }
+
+    long percentile(double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    // values below SUB_BUCKETS have own buckets, then every power of two is split into HALF_SUB_BUCKETS
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // highest value counted in the bucket
+    private static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / HALF_SUB_BUCKETS - 1;
+        final long lowest = (long) (bucket - shift * HALF_SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,148 @@
+package ru.netology;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// open-loop load generator, e.g.
+// java -jar loadgen.jar -rate 2000 -connections 32 -duration 30 -warmup 5 -target localhost:9999 requests.http
+public class Main {
+    private static final double[] QUANTILES = {0.5, 0.75, 0.9, 0.99, 0.999, 0.9999};
+    private static final long DRAIN_SECONDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        double rate = 1000;
+        int connections = 16;
+        int threads = 1;
+        long duration = 30;
+        long warmup = 5;
+        InetSocketAddress target = null;
+        Path file = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "-connections":
+                    connections = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-duration":
+                    duration = Long.parseLong(args[++i]);
+                    break;
+                case "-warmup":
+                    warmup = Long.parseLong(args[++i]);
+                    break;
+                case "-target":
+                    final String[] hostPort = args[++i].split(":");
+                    target = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+                    break;
+                default:
+                    file = Path.of(args[i]);
+            }
+        }
+        if (file == null || rate <= 0 || connections < threads || threads < 1 || duration < 1 || warmup < 0) {
+            System.err.println("Usage: loadgen [-rate requests/s] [-connections n] [-threads n] [-duration s] "
+                    + "[-warmup s] [-target host:port] file.http");
+            System.exit(1);
+        }
+
+        final Scenario scenario = Scenario.load(file, target);
+        System.out.printf(Locale.ROOT, "%s: %d requests round-robin against %s%n",
+                file, scenario.size(), scenario.address());
+        for (String name : scenario.names()) {
+            System.out.println("  " + name);
+        }
+        System.out.printf(Locale.ROOT, "rate %.0f/s, %d connections, %d threads, warmup %ds, duration %ds%n",
+                rate, connections, threads, warmup, duration);
+
+        // all workers share the schedule start, so the rate is spread evenly
+        final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        final long measureStart = start + TimeUnit.SECONDS.toNanos(warmup);
+        final long end = measureStart + TimeUnit.SECONDS.toNanos(duration);
+        final long drainEnd = end + TimeUnit.SECONDS.toNanos(DRAIN_SECONDS);
+
+        final List<Worker> workers = new ArrayList<>();
+        final List<Thread> workerThreads = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final int workerConnections = connections / threads + (i < connections % threads ? 1 : 0);
+            final Worker worker = new Worker(scenario, workerConnections, rate / threads, start, measureStart,
+                    end, drainEnd);
+            final Thread thread = new Thread(worker, "loadgen-" + i);
+            workers.add(worker);
+            workerThreads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : workerThreads) {
+            thread.join();
+        }
+
+        report(workers, rate, duration);
+    }
+
+    private static void report(List<Worker> workers, double rate, long duration) {
+        final Histogram latency = new Histogram();
+        final Histogram serviceTime = new Histogram();
+        final long[] statuses = new long[6];
+        long completed = 0;
+        long sent = 0;
+        long connectErrors = 0;
+        long ioErrors = 0;
+        long timeouts = 0;
+        long unsent = 0;
+        for (Worker worker : workers) {
+            latency.add(worker.latency);
+            serviceTime.add(worker.serviceTime);
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] += worker.statuses[i];
+            }
+            completed += worker.completed;
+            sent += worker.sent;
+            connectErrors += worker.connectErrors;
+            ioErrors += worker.ioErrors;
+            timeouts += worker.timeouts;
+            unsent += worker.unsent;
+        }
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "throughput: %.1f requests/s (target %.0f/s), %d completed in %ds%n",
+                (double) completed / duration, rate, completed, duration);
+        System.out.printf(Locale.ROOT, "status: 1xx %d, 2xx %d, 3xx %d, 4xx %d, 5xx %d%n",
+                statuses[1], statuses[2], statuses[3], statuses[4], statuses[5]);
+        System.out.printf(Locale.ROOT,
+                "whole run: %d sent, %d not sent in time, %d connect errors, %d io errors, %d timeouts%n",
+                sent, unsent, connectErrors, ioErrors, timeouts);
+        if (unsent > 0) {
+            System.out.println("rate was not sustained: too few connections, or the server is saturated or down");
+        }
+        System.out.println();
+        if (latency.count() == 0) {
+            System.out.println("no responses in the measured period");
+            return;
+        }
+        printPercentiles("latency from intended send time (coordinated omission corrected)", latency);
+        printPercentiles("service time from actual send", serviceTime);
+    }
+
+    private static void printPercentiles(String title, Histogram histogram) {
+        System.out.println(title + ", ms:");
+        for (double quantile : QUANTILES) {
+            System.out.printf(Locale.ROOT, "  p%-7s %10.3f%n", percentileName(quantile),
+                    histogram.percentile(quantile) / 1000.0);
+        }
+        System.out.printf(Locale.ROOT, "  %-8s %10.3f%n", "max", histogram.max() / 1000.0);
+        System.out.printf(Locale.ROOT, "  %-8s %10.3f%n", "mean", histogram.mean() / 1000.0);
+    }
+
+    // 0.999 -> 99.9
+    private static String percentileName(double quantile) {
+        final String name = String.format(Locale.ROOT, "%.2f", quantile * 100);
+        return name.replaceAll("\\.?0+$", "");
+    }
+}
@@ -0,0 +1,204 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// incremental reader of a response, only status and framing headers are kept, body is skipped
+class ResponseParser {
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+
+    private enum State {
+        STATUS_LINE, HEADERS, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS, UNTIL_CLOSE, DONE
+    }
+
+    private final StringBuilder line = new StringBuilder();
+    private State state = State.STATUS_LINE;
+    private boolean noBody;
+    private int status;
+    private long contentLength;
+    private boolean chunked;
+    private boolean close;
+    // of body or current chunk
+    private long remaining;
+
+    // response to HEAD has headers only
+    void reset(boolean noBody) {
+        line.setLength(0);
+        state = State.STATUS_LINE;
+        this.noBody = noBody;
+        status = 0;
+        contentLength = -1;
+        chunked = false;
+        close = false;
+        remaining = 0;
+    }
+
+    // returns true when the response is complete, requests are not pipelined so nothing follows it
+    boolean feed(ByteBuffer buffer) throws IOException {
+        while (state != State.DONE && buffer.hasRemaining()) {
+            switch (state) {
+                case STATUS_LINE:
+                    if (readLine(buffer)) {
+                        parseStatusLine();
+                    }
+                    break;
+                case HEADERS:
+                    if (readLine(buffer)) {
+                        if (line.length() == 0) {
+                            endHeaders();
+                        } else {
+                            parseHeader();
+                        }
+                    }
+                    break;
+                case BODY:
+                case CHUNK_DATA:
+                case UNTIL_CLOSE:
+                    final int skipped = (int) Math.min(remaining, buffer.remaining());
+                    buffer.position(buffer.position() + skipped);
+                    if (state != State.UNTIL_CLOSE) {
+                        remaining -= skipped;
+                        if (remaining == 0) {
+                            state = state == State.BODY ? State.DONE : State.CHUNK_END;
+                        }
+                    }
+                    break;
+                case CHUNK_SIZE:
+                    if (readLine(buffer)) {
+                        parseChunkSize();
+                    }
+                    break;
+                case CHUNK_END:
+                    if (readLine(buffer)) {
+                        if (line.length() != 0) {
+                            throw new IOException("Invalid chunk end");
+                        }
+                        state = State.CHUNK_SIZE;
+                    }
+                    break;
+                case TRAILERS:
+                    if (readLine(buffer)) {
+                        if (line.length() == 0) {
+                            state = State.DONE;
+                        }
+                        line.setLength(0);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException(state.name());
+            }
+        }
+        return state == State.DONE;
+    }
+
+    // returns true when the end of stream completes the response, i.e. the body had no length
+    boolean endOfStream() {
+        if (state == State.UNTIL_CLOSE) {
+            state = State.DONE;
+            return true;
+        }
+        return false;
+    }
+
+    int status() {
+        return status;
+    }
+
+    // connection can't be reused after the response
+    boolean isClose() {
+        return close;
+    }
+
+    private boolean readLine(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            final char c = (char) (buffer.get() & 0xff);
+            if (c == '\n') {
+                final int last = line.length() - 1;
+                if (last >= 0 && line.charAt(last) == '\r') {
+                    line.setLength(last);
+                }
+                return true;
+            }
+            if (line.length() == MAX_LINE_LENGTH) {
+                throw new IOException("Response line is too long");
+            }
+            line.append(c);
+        }
+        return false;
+    }
+
+    private void parseStatusLine() throws IOException {
+        // HTTP/1.1 200 OK
+        if (line.length() < 12 || !line.substring(0, 5).equals("HTTP/") || line.charAt(8) != ' ') {
+            throw new IOException("Invalid status line: " + line);
+        }
+        // HTTP/1.0 connections are closed unless kept alive explicitly
+        close = line.substring(0, 8).equals("HTTP/1.0");
+        try {
+            status = Integer.parseInt(line.substring(9, 12));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid status line: " + line);
+        }
+        line.setLength(0);
+        state = State.HEADERS;
+    }
+
+    private void parseHeader() throws IOException {
+        final int colon = line.indexOf(":");
+        if (colon <= 0) {
+            throw new IOException("Invalid header: " + line);
+        }
+        final String name = line.substring(0, colon).trim();
+        final String value = line.substring(colon + 1).trim();
+        line.setLength(0);
+
+        if (name.equalsIgnoreCase("Content-Length")) {
+            try {
+                contentLength = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid Content-Length: " + value);
+            }
+        } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+            chunked = value.toLowerCase().endsWith("chunked");
+        } else if (name.equalsIgnoreCase("Connection")) {
+            if (value.equalsIgnoreCase("close")) {
+                close = true;
+            } else if (value.equalsIgnoreCase("keep-alive")) {
+                close = false;
+            }
+        }
+    }
+
+    private void endHeaders() {
+        if (status >= 100 && status < 200) {
+            // informational, the final response follows
+            reset(noBody);
+            return;
+        }
+        if (noBody || status == 204 || status == 304) {
+            state = State.DONE;
+        } else if (chunked) {
+            state = State.CHUNK_SIZE;
+        } else if (contentLength >= 0) {
+            remaining = contentLength;
+            state = remaining == 0 ? State.DONE : State.BODY;
+        } else {
+            // body ends with the connection
+            remaining = Long.MAX_VALUE;
+            close = true;
+            state = State.UNTIL_CLOSE;
+        }
+    }
+
+    private void parseChunkSize() throws IOException {
+        final int extension = line.indexOf(";");
+        final String size = (extension == -1 ? line.toString() : line.substring(0, extension)).trim();
+        line.setLength(0);
+        try {
+            remaining = Long.parseLong(size, 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid chunk size: " + size);
+        }
+        state = remaining == 0 ? State.TRAILERS : State.CHUNK_DATA;
+    }
+}
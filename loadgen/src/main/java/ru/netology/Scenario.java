@@ -0,0 +1,111 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// requests of an .http file (IntelliJ HTTP client format) encoded once, they are sent round-robin
+class Scenario {
+    private static final String SEPARATOR = "###";
+
+    private final List<byte[]> requests;
+    private final List<String> names;
+    private final InetSocketAddress address;
+
+    private Scenario(List<byte[]> requests, List<String> names, InetSocketAddress address) {
+        this.requests = requests;
+        this.names = names;
+        this.address = address;
+    }
+
+    // target overrides host and port of the file urls, may be null
+    static Scenario load(Path file, InetSocketAddress target) throws IOException {
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        final List<byte[]> requests = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+        InetSocketAddress address = target;
+
+        int i = 0;
+        while (i < lines.size()) {
+            // request line is the first line which is not empty or a comment
+            while (i < lines.size() && isSkipped(lines.get(i))) {
+                i++;
+            }
+            if (i == lines.size()) {
+                break;
+            }
+            final String[] requestLine = lines.get(i++).trim().split("\\s+");
+            if (requestLine.length < 2) {
+                throw new IllegalArgumentException("Invalid request line in " + file + ": " + lines.get(i - 1));
+            }
+            final String method = requestLine[0];
+            final URI uri = URI.create(requestLine[1]);
+            if (address == null) {
+                address = new InetSocketAddress(uri.getHost(), uri.getPort() == -1 ? 80 : uri.getPort());
+            }
+
+            final StringBuilder headers = new StringBuilder();
+            while (i < lines.size() && !lines.get(i).isBlank() && !lines.get(i).startsWith(SEPARATOR)) {
+                headers.append(lines.get(i++).trim()).append("\r\n");
+            }
+            final StringBuilder body = new StringBuilder();
+            while (i < lines.size() && !lines.get(i).startsWith(SEPARATOR)) {
+                body.append(lines.get(i++)).append('\n');
+            }
+
+            final String requestTarget = uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+            names.add(method + " " + requestTarget);
+            requests.add(encode(method, requestTarget, address, headers, body.toString().strip()));
+        }
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("No requests in " + file);
+        }
+        return new Scenario(requests, names, address);
+    }
+
+    int size() {
+        return requests.size();
+    }
+
+    byte[] request(long index) {
+        return requests.get((int) (index % requests.size()));
+    }
+
+    List<String> names() {
+        return names;
+    }
+
+    InetSocketAddress address() {
+        return address;
+    }
+
+    private static boolean isSkipped(String line) {
+        final String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("//");
+    }
+
+    private static byte[] encode(String method, String target, InetSocketAddress address, StringBuilder headers,
+                                 String body) {
+        final byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        final StringBuilder head = new StringBuilder()
+                .append(method).append(' ').append(target).append(" HTTP/1.1\r\n")
+                .append("Host: ").append(address.getHostString()).append(':').append(address.getPort()).append("\r\n")
+                .append(headers);
+        // servers may wait for a body of POST and PUT without length
+        if (bodyBytes.length > 0 || method.equals("POST") || method.equals("PUT")) {
+            head.append("Content-Length: ").append(bodyBytes.length).append("\r\n");
+        }
+        head.append("\r\n");
+
+        final byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+        final byte[] request = new byte[headBytes.length + bodyBytes.length];
+        System.arraycopy(headBytes, 0, request, 0, headBytes.length);
+        System.arraycopy(bodyBytes, 0, request, headBytes.length, bodyBytes.length);
+        return request;
+    }
+}
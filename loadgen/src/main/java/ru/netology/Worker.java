@@ -0,0 +1,301 @@
+package ru.netology;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// sends requests at a fixed rate over its own keep-alive connections, one request at a time per connection
+// schedule doesn't depend on responses: when all connections are busy requests wait, and latency is counted
+// from the time a request was due to be sent, so a stalled server isn't hidden by fewer requests sent
+class Worker implements Runnable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long RECONNECT_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_SELECT_MILLIS = 10;
+
+    private final Scenario scenario;
+    private final int connectionsCount;
+    private final double intervalNanos;
+    private final long startNanos;
+    private final long measureStartNanos;
+    private final long endNanos;
+    private final long drainEndNanos;
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final ArrayDeque<Connection> idle = new ArrayDeque<>();
+    private final List<Connection> broken = new ArrayList<>();
+    private Selector selector;
+    // index of the next request to send, all requests before it are sent
+    private long next;
+    private int inFlight;
+
+    // from the time a request was due, with waiting for a free connection
+    final Histogram latency = new Histogram();
+    // from the time a request was actually written
+    final Histogram serviceTime = new Histogram();
+    // by status class, 1xx to 5xx
+    final long[] statuses = new long[6];
+    long completed;
+    long sent;
+    long connectErrors;
+    long ioErrors;
+    long timeouts;
+    // due but not sent when the run ended
+    long unsent;
+
+    Worker(Scenario scenario, int connectionsCount, double rate, long startNanos, long measureStartNanos,
+           long endNanos, long drainEndNanos) {
+        this.scenario = scenario;
+        this.connectionsCount = connectionsCount;
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        this.startNanos = startNanos;
+        this.measureStartNanos = measureStartNanos;
+        this.endNanos = endNanos;
+        this.drainEndNanos = drainEndNanos;
+    }
+
+    @Override
+    public void run() {
+        try {
+            selector = Selector.open();
+            for (int i = 0; i < connectionsCount; i++) {
+                connect(new Connection());
+            }
+            loop();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void loop() throws IOException {
+        while (true) {
+            final long now = System.nanoTime();
+            if (now >= endNanos) {
+                if (inFlight == 0 || now >= drainEndNanos) {
+                    unsent = due(endNanos - 1) - next;
+                    timeouts = inFlight;
+                    return;
+                }
+            } else {
+                reconnect(now);
+                dispatch(now);
+            }
+
+            final long waitNanos = (now >= endNanos ? drainEndNanos : nextWakeUp(now)) - now;
+            final long waitMillis = Math.min(MAX_SELECT_MILLIS, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            if (waitMillis <= 0) {
+                selector.selectNow();
+            } else {
+                selector.select(waitMillis);
+            }
+
+            final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                final SelectionKey key = iterator.next();
+                iterator.remove();
+                final Connection connection = (Connection) key.attachment();
+                try {
+                    if (key.isValid() && key.isConnectable()) {
+                        finishConnect(key, connection);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(key, connection);
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(key, connection);
+                    }
+                } catch (IOException e) {
+                    fail(connection);
+                }
+            }
+        }
+    }
+
+    // number of requests due by the time
+    private long due(long nanos) {
+        return nanos < startNanos ? 0 : (long) ((nanos - startNanos) / intervalNanos) + 1;
+    }
+
+    private long intendedNanos(long index) {
+        return startNanos + (long) (index * intervalNanos);
+    }
+
+    // next request is either already late, waiting for a connection, or due in the future
+    private long nextWakeUp(long now) {
+        return idle.isEmpty() ? now + TimeUnit.MILLISECONDS.toNanos(MAX_SELECT_MILLIS) : intendedNanos(next);
+    }
+
+    private void dispatch(long now) {
+        final long due = due(Math.min(now, endNanos - 1));
+        while (next < due && !idle.isEmpty()) {
+            send(idle.poll(), next++);
+        }
+    }
+
+    private void send(Connection connection, long index) {
+        final byte[] request = scenario.request(index);
+        connection.intendedNanos = intendedNanos(index);
+        connection.sentNanos = System.nanoTime();
+        connection.request = ByteBuffer.wrap(request);
+        connection.parser.reset(request[0] == 'H' && request[1] == 'E');
+        inFlight++;
+        sent++;
+        try {
+            write(connection.key, connection);
+        } catch (IOException e) {
+            fail(connection);
+        }
+    }
+
+    private void write(SelectionKey key, Connection connection) throws IOException {
+        connection.channel.write(connection.request);
+        key.interestOps(connection.request.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void read(SelectionKey key, Connection connection) throws IOException {
+        readBuffer.clear();
+        final int read = connection.channel.read(readBuffer);
+        if (read == -1) {
+            if (connection.request != null && connection.parser.endOfStream()) {
+                complete(connection);
+            }
+            fail(connection);
+            return;
+        }
+        readBuffer.flip();
+        if (connection.request == null) {
+            // nothing was asked, the server isn't expected to send anything
+            fail(connection);
+            return;
+        }
+        if (!connection.parser.feed(readBuffer)) {
+            return;
+        }
+        complete(connection);
+        if (connection.parser.isClose()) {
+            fail(connection);
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        idle.add(connection);
+        dispatch(System.nanoTime());
+    }
+
+    private void complete(Connection connection) {
+        final long now = System.nanoTime();
+        if (connection.intendedNanos >= measureStartNanos && connection.intendedNanos < endNanos) {
+            latency.record(TimeUnit.NANOSECONDS.toMicros(now - connection.intendedNanos));
+            serviceTime.record(TimeUnit.NANOSECONDS.toMicros(now - connection.sentNanos));
+            statuses[Math.min(5, connection.parser.status() / 100)]++;
+            completed++;
+        }
+        connection.request = null;
+        inFlight--;
+    }
+
+    private void connect(Connection connection) {
+        try {
+            final SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            connection.channel = channel;
+            final InetSocketAddress address = scenario.address();
+            if (channel.connect(address)) {
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                idle.add(connection);
+            } else {
+                connection.key = channel.register(selector, SelectionKey.OP_CONNECT, connection);
+            }
+        } catch (IOException e) {
+            connectErrors++;
+            close(connection);
+            connection.reconnectNanos = System.nanoTime() + RECONNECT_DELAY_NANOS;
+            broken.add(connection);
+        }
+    }
+
+    private void finishConnect(SelectionKey key, Connection connection) {
+        try {
+            connection.channel.finishConnect();
+            key.interestOps(SelectionKey.OP_READ);
+            idle.add(connection);
+        } catch (IOException e) {
+            connectErrors++;
+            close(connection);
+            connection.reconnectNanos = System.nanoTime() + RECONNECT_DELAY_NANOS;
+            broken.add(connection);
+        }
+    }
+
+    private void reconnect(long now) {
+        for (Iterator<Connection> iterator = broken.iterator(); iterator.hasNext(); ) {
+            final Connection connection = iterator.next();
+            if (connection.reconnectNanos <= now) {
+                iterator.remove();
+                connect(connection);
+            }
+        }
+    }
+
+    // in-flight request is counted as an error, connection is opened again
+    private void fail(Connection connection) {
+        if (connection.request != null) {
+            ioErrors++;
+            connection.request = null;
+            inFlight--;
+        }
+        idle.remove(connection);
+        close(connection);
+        connect(connection);
+    }
+
+    private void close(Connection connection) {
+        if (connection.key != null) {
+            connection.key.cancel();
+            connection.key = null;
+        }
+        if (connection.channel != null) {
+            try {
+                connection.channel.close();
+            } catch (IOException ignored) {
+                // nothing to do
+            }
+            connection.channel = null;
+        }
+    }
+
+    private void closeAll() {
+        if (selector == null) {
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            close((Connection) key.attachment());
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static class Connection {
+        private final ResponseParser parser = new ResponseParser();
+        private SocketChannel channel;
+        private SelectionKey key;
+        // of the request in flight, null when idle
+        private ByteBuffer request;
+        private long intendedNanos;
+        private long sentNanos;
+        private long reconnectNanos;
+    }
+}